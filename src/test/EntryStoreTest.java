@@ -0,0 +1,95 @@
+/**
+ *
+ */
+package test;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import timeAnalyser.Entry;
+import timeAnalyser.EntryStore;
+import timeAnalyser.FileMetadata;
+import timeAnalyser.Timestamp;
+
+/**
+ * @author Jelle Bouma
+ *
+ */
+public class EntryStoreTest {
+
+	static final long TIME_VALUE = 131000000000000000L;
+
+	/**
+	 * Sets a deleted file with a name and all eight time-stamps at a position.
+	 * @param store the store
+	 * @param position the position
+	 * @param index the index of the file
+	 */
+	private static void setFile(EntryStore store, int position, long index) {
+		store.setEntry(position, index, true, (short) 3);
+		store.setMetadata(position, false, true);
+		store.setName(position, 42, "file" + index + ".txt");
+		for (int ii = 0; ii < 4; ii++) {
+			store.setSI(position, ii, TIME_VALUE + ii);
+			store.setFN(position, ii, TIME_VALUE + 4 + ii);
+		}
+	}
+
+	/**
+	 * Test method for {@link timeAnalyser.EntryStore#getEntry(int)}.
+	 */
+	@Test
+	public void storedEntry_Should_BeMadeIntoAnEqualEntry() {
+		EntryStore store = new EntryStore(3, false);
+		setFile(store, 1, 1);
+		store.setEntry(2, 2, false, (short) 0);
+		assertNull("A position that was not read should not give an entry.", store.getEntry(0));
+		Entry broken = store.getEntry(2);
+		assertFalse(broken.signatureIntact());
+		assertFalse("An entry with a broken signature should not have meta-data.", broken.hasMetadata());
+		Entry entry = store.getEntry(1);
+		assertEquals(1, entry.getNTFSIndex());
+		assertEquals(3, entry.getNTFSSequenceNumber());
+		assertTrue(entry.hasSIAndFN());
+		FileMetadata metadata = entry.getSequence(0).getMetadata(0);
+		assertTrue(metadata.isDeleted());
+		assertFalse(metadata.isDirectory());
+		assertEquals(42, metadata.getParentID());
+		assertEquals("file1.txt", metadata.getName());
+		Timestamp[] all = metadata.getTimestamps().getAll();
+		for (int ii = 0; ii < all.length; ii++) {
+			assertEquals("Time-stamp " + ii + " was not stored.", new Timestamp(TIME_VALUE + ii), all[ii]);
+		}
+	}
+
+	/**
+	 * Test method for {@link timeAnalyser.EntryStore#getEntry(int)}.
+	 */
+	@Test
+	public void entryWithoutFileName_Should_KeepTheDefaultsOfFileMetadata() {
+		EntryStore store = new EntryStore(1, false);
+		store.setEntry(0, 0, true, (short) 1);
+		store.setMetadata(0, true, false);
+		FileMetadata metadata = store.getEntry(0).getSequence(0).getMetadata(0);
+		FileMetadata defaults = new FileMetadata();
+		assertEquals(defaults.getParentID(), metadata.getParentID());
+		assertEquals(defaults.getName(), metadata.getName());
+		assertTrue(metadata.isDirectory());
+		assertFalse("An entry without time-stamps should not have $SI and $FN.", store.hasSIAndFN(0));
+	}
+
+	/**
+	 * Test method for {@link timeAnalyser.EntryStore#getNTFSIndex(int)}.
+	 */
+	@Test
+	public void indexedStore_Should_KeepTheIndexOfEveryPosition() {
+		EntryStore store = new EntryStore(2, true);
+		setFile(store, 0, 100);
+		setFile(store, 1, 7);
+		assertEquals(100, store.getNTFSIndex(0));
+		assertEquals(7, store.getEntry(1).getNTFSIndex());
+		assertEquals("file7.txt", store.getName(1));
+	}
+
+}
@@ -0,0 +1,84 @@
+/**
+ *
+ */
+package test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Test;
+
+import timeAnalyser.Entry;
+import timeAnalyser.EntryWriter;
+
+/**
+ * @author Jelle Bouma
+ *
+ */
+public class EntryWriterTest {
+
+	/**
+	 * Writes the entries with an entry writer and with a PrintWriter.
+	 * @param entries entries
+	 * @throws IOException
+	 */
+	private static void assertWrittenAsPrinted(ArrayList<Entry> entries) throws IOException {
+		File written = File.createTempFile("written", ".txt");
+		File printed = File.createTempFile("printed", ".txt");
+		try {
+			try (EntryWriter writer = new EntryWriter(written)) {
+				for (Entry entry : entries) {
+					writer.write(entry);
+				}
+			}
+			try (PrintWriter printer = new PrintWriter(printed)) {
+				for (Entry entry : entries) {
+					printer.println(entry);
+				}
+			}
+			assertArrayEquals(Files.readAllBytes(printed.toPath()), Files.readAllBytes(written.toPath()));
+		}
+		finally {
+			written.delete();
+			printed.delete();
+		}
+	}
+
+	/**
+	 * Test method for {@link timeAnalyser.EntryWriter#write(timeAnalyser.Entry)}.
+	 */
+	@Test
+	public void timestamps_Should_BeWrittenAsTheyArePrinted() throws IOException {
+		ArrayList<Entry> entries = new ArrayList<>();
+		long[] timeValues = {0L, 132061996440000000L, 132061996449999999L, 125911584000000000L, -1L, Long.MIN_VALUE, Long.MAX_VALUE};
+		for (long timeValue : timeValues) {
+			entries.add(TestEntries.getCreatedEntry(entries.size(), "file.txt", timeValue));
+		}
+		Random random = new Random(1601);
+		for (int ii = 0; ii < 2000; ii++) {
+			entries.add(TestEntries.getCreatedEntry(entries.size(), "file.txt", random.nextLong()));
+			entries.add(TestEntries.getCreatedEntry(entries.size(), "file.txt", 116444736000000000L + (random.nextLong() & 0xFFFFFFFFFFFFFFL))); // from 1970 on
+		}
+		assertWrittenAsPrinted(entries);
+	}
+
+	/**
+	 * Test method for {@link timeAnalyser.EntryWriter#write(timeAnalyser.Entry)}.
+	 */
+	@Test
+	public void namesWithOtherCharacters_Should_BeWrittenAsTheyArePrinted() throws IOException {
+		ArrayList<Entry> entries = new ArrayList<>();
+		entries.add(TestEntries.getCreatedEntry(1, "r\u00e9sum\u00e9.docx", 132061996440000000L));
+		entries.add(TestEntries.getCreatedEntry(2, "\u6587\u4ef6 \ud83d\udcc4.txt", 132061996440000000L));
+		entries.add(TestEntries.getCreatedEntry(3, "", 132061996440000000L));
+		entries.add(new Entry(4, true));
+		assertWrittenAsPrinted(entries);
+	}
+
+}
@@ -0,0 +1,126 @@
+/**
+ *
+ */
+package test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Test;
+
+import timeAnalyser.GzipBlockReader;
+
+/**
+ * @author Jelle Bouma
+ *
+ */
+public class GzipBlockReaderTest {
+
+	static final int ENTRY_SIZE = 1024;
+
+	/**
+	 * Writes a gzip file of two members, holding 3000 entries and half an entry, with every byte of entry ii set to ii modulo 251.
+	 * @return the gzip file
+	 * @throws IOException
+	 */
+	private static File createMultiMemberFile() throws IOException {
+		File file = File.createTempFile("mft", ".gz");
+		file.deleteOnExit();
+		try (OutputStream output = new FileOutputStream(file)) {
+			for (int member = 0; member < 2; member++) {
+				GZIPOutputStream gzip = new GZIPOutputStream(output);
+				for (int ii = member * 1500; ii < (member + 1) * 1500; ii++) {
+					byte[] entry = new byte[ENTRY_SIZE];
+					Arrays.fill(entry, (byte) (ii % 251));
+					gzip.write(entry);
+				}
+				if (member == 1) {
+					gzip.write(new byte[ENTRY_SIZE / 2]);
+				}
+				gzip.finish();
+			}
+		}
+		return file;
+	}
+
+	/**
+	 * Test method for {@link timeAnalyser.GzipBlockReader#take()}.
+	 * @throws IOException
+	 */
+	@Test
+	public void everyMember_Should_BeInflatedInOrderIntoWholeEntries() throws IOException {
+		File file = createMultiMemberFile();
+		assertTrue(GzipBlockReader.isGzip(file));
+		int entries = 0;
+		try (GzipBlockReader reader = new GzipBlockReader(file, ENTRY_SIZE)) {
+			ByteBuffer block;
+			while ((block = reader.take()) != null) {
+				assertEquals("A block does not hold a whole amount of entries.", 0, block.limit() % ENTRY_SIZE);
+				for (int ii = 0; ii < block.limit(); ii += ENTRY_SIZE) {
+					assertEquals("Entry " + entries + " was not inflated in order.", (byte) (entries % 251), block.get(ii));
+					entries++;
+				}
+			}
+		}
+		assertEquals("The partial entry at the end should be ignored.", 3000, entries);
+	}
+
+	/**
+	 * Test method for {@link timeAnalyser.GzipBlockReader#take()}.
+	 * @throws IOException
+	 */
+	@Test
+	public void failureOtherThanIOException_Should_EndTheBlocksAndBeThrownByTake() throws IOException {
+		IllegalStateException corrupt = new IllegalStateException("corrupt deflate block");
+		File file = createMultiMemberFile();
+		int blocks = 0;
+		try (GzipBlockReader reader = new GzipBlockReader(file, ENTRY_SIZE) {
+			@Override
+			protected InputStream open() throws IOException {
+				InputStream inflated = super.open();
+				return new InputStream() {
+					private int read = 0; // the amount of bytes read, the stream fails after 2500 entries, in the third block
+
+					@Override
+					public int read() throws IOException {
+						byte[] single = new byte[1];
+						return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+					}
+
+					@Override
+					public int read(byte[] bytes, int offset, int length) throws IOException {
+						if (read >= 2500 * ENTRY_SIZE) {
+							throw corrupt;
+						}
+						int inflatedLength = inflated.read(bytes, offset, Math.min(length, 2500 * ENTRY_SIZE - read));
+						read += Math.max(0, inflatedLength);
+						return inflatedLength;
+					}
+
+					@Override
+					public void close() throws IOException {
+						inflated.close();
+					}
+				};
+			}
+		}) {
+			while (reader.take() != null) {
+				blocks++;
+			}
+			fail("The failure of the inflating thread should be thrown by take.");
+		}
+		catch (IOException ioEx) {
+			assertSame(corrupt, ioEx.getCause());
+		}
+		assertEquals("The blocks inflated before the failure should be taken first.", 2, blocks);
+	}
+
+}
@@ -0,0 +1,74 @@
+/**
+ *
+ */
+package test;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import timeAnalyser.IndexRanges;
+
+/**
+ * @author Jelle Bouma
+ *
+ */
+public class IndexRangesTest {
+
+	/**
+	 * Test method for {@link timeAnalyser.IndexRanges#parse(java.lang.String)}.
+	 */
+	@Test
+	public void parsedList_Should_ContainExactlyTheListedIndexes() {
+		IndexRanges ranges = IndexRanges.parse("7|100-250000|300000-310000");
+		assertTrue("A listed index is not in the parsed set.", ranges.contains(7));
+		assertTrue("The first index of a listed range is not in the parsed set.", ranges.contains(100));
+		assertTrue("The last index of a listed range is not in the parsed set, ranges should be inclusive.", ranges.contains(250000));
+		assertFalse("An index between two listed ranges is in the parsed set.", ranges.contains(250001));
+		assertFalse("An index before the first listed index is in the parsed set.", ranges.contains(6));
+		assertEquals("The parsed set does not have the listed amount of indexes.", 1 + 249901 + 10001, ranges.size());
+	}
+
+	/**
+	 * Test method for {@link timeAnalyser.IndexRanges#add(long, long)}.
+	 */
+	@Test
+	public void overlappingAndAdjacentRanges_Should_BeMergedIntoOneRun() {
+		IndexRanges ranges = new IndexRanges();
+		ranges.add(10, 20);
+		ranges.add(30, 40);
+		ranges.add(50, 60);
+		assertEquals("Disjoint ranges should be kept as separate runs.", 3, ranges.getRunCount());
+		ranges.add(20, 30); // adjacent to both the first and the second run
+		assertEquals("A range that fills the gap between two runs should merge them.", 2, ranges.getRunCount());
+		ranges.add(5, 55);
+		assertEquals("A range that overlaps every run should merge them all.", 1, ranges.getRunCount());
+		assertEquals("The merged run starts at the wrong index.", 5, ranges.getStart(0));
+		assertEquals("The merged run ends at the wrong index.", 60, ranges.getEnd(0));
+	}
+
+	/**
+	 * Test method for {@link timeAnalyser.IndexRanges#add(long, long)}.
+	 */
+	@Test
+	public void rangesAddedOutOfOrder_Should_BeKeptInAscendingOrder() {
+		IndexRanges ranges = IndexRanges.parse("900|12|400-410|5");
+		long previousEnd = -1;
+		for (int ii = 0; ii < ranges.getRunCount(); ii++) {
+			assertTrue("Runs are not in ascending order.", ranges.getStart(ii) > previousEnd);
+			previousEnd = ranges.getEnd(ii);
+		}
+		assertEquals("Out of order indexes were lost or duplicated.", 14, ranges.size());
+	}
+
+	/**
+	 * Test method for {@link timeAnalyser.IndexRanges#isIndexList(java.lang.String)}.
+	 */
+	@Test
+	public void fileNames_ShouldNot_BeSeenAsIndexLists() {
+		assertTrue(IndexRanges.isIndexList("12|7|100-200"));
+		assertFalse(IndexRanges.isIndexList("desktop.ini|Thumbs.db"));
+		assertFalse(IndexRanges.isIndexList("100-200.txt"));
+	}
+
+}
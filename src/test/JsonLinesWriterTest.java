@@ -0,0 +1,81 @@
+/**
+ *
+ */
+package test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import timeAnalyser.Entry;
+import timeAnalyser.JsonLinesWriter;
+import timeAnalyser.Timestamp;
+
+/**
+ * @author Jelle Bouma
+ *
+ */
+public class JsonLinesWriterTest {
+
+	/**
+	 * @param entries entries
+	 * @return the lines written for the entries
+	 * @throws IOException
+	 */
+	private static List<String> write(ArrayList<Entry> entries) throws IOException {
+		File written = File.createTempFile("written", ".jsonl");
+		try {
+			try (JsonLinesWriter writer = new JsonLinesWriter(written)) {
+				for (Entry entry : entries) {
+					writer.write(entry);
+				}
+			}
+			return Files.readAllLines(written.toPath(), StandardCharsets.UTF_8);
+		}
+		finally {
+			written.delete();
+		}
+	}
+
+	/**
+	 * Test method for {@link timeAnalyser.JsonLinesWriter#write(timeAnalyser.Entry)}.
+	 */
+	@Test
+	public void sequence_Should_BeWrittenAsAnObjectOnALine() throws IOException {
+		ArrayList<Entry> entries = new ArrayList<>();
+		entries.add(TestEntries.getCreatedEntry(42, 3, "a \"quoted\"\\r\u00e9sum\u00e9\t\ud800.txt", 132061996440000000L));
+		List<String> lines = write(entries);
+		assertEquals(1, lines.size());
+		assertEquals("{\"index\":42,\"sequenceNumber\":3,\"split\":false,\"path\":null,\"name\":\"a \\\"quoted\\\"\\\\r\u00e9sum\u00e9\\u0009\\ud800.txt\",\"irregular\":false,\"truncation\":null,"
+				+ "\"matches\":[{\"kind\":\"at\",\"lower\":{\"value\":132061996440000000,\"time\":\"2019-06-28T12:47:24.0000000Z\"},\"upper\":null,\"operations\":[\"Create\"],\"otherVolume\":\"no\"}]}", lines.get(0));
+	}
+
+	/**
+	 * Test method for {@link timeAnalyser.JsonLinesWriter#write(timeAnalyser.Entry)}.
+	 */
+	@Test
+	public void times_Should_BeWrittenAsJavaTimeFormatsThem() throws IOException {
+		DateTimeFormatter iso = DateTimeFormatter.ofPattern("uuuu-MM-dd'T'HH:mm:ss.SSSSSSS'Z'");
+		ArrayList<Entry> entries = new ArrayList<>();
+		Random random = new Random(1601);
+		for (int ii = 0; ii < 2000; ii++) {
+			entries.add(TestEntries.getCreatedEntry(ii, "file.txt", random.nextLong()));
+		}
+		entries.add(TestEntries.getCreatedEntry(2000, "file.txt", -1L));
+		List<String> lines = write(entries);
+		for (int ii = 0; ii < entries.size(); ii++) {
+			Timestamp timestamp = entries.get(ii).getSequence(0).getTimeMatch(0).getTimestamps()[0];
+			assertTrue(lines.get(ii), lines.get(ii).contains("{\"value\":" + Long.toUnsignedString(timestamp.getTimeValue()) + ",\"time\":\"" + timestamp.getDate().format(iso) + "\"}"));
+		}
+	}
+
+}
@@ -0,0 +1,42 @@
+/**
+ *
+ */
+package test;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import timeAnalyser.NameMatcher;
+
+/**
+ * @author Jelle Bouma
+ *
+ */
+public class NameMatcherTest {
+
+	/**
+	 * Test method for {@link timeAnalyser.NameMatcher#matches(java.lang.String)}.
+	 */
+	@Test
+	public void plainNames_Should_MatchIgnoringCase() {
+		NameMatcher matcher = new NameMatcher(new String[] {"desktop.ini", "R\u00e9sum\u00e9.TXT"});
+		assertTrue(matcher.matches("DESKTOP.INI"));
+		assertTrue(matcher.matches("r\u00e9sum\u00e9.txt"));
+		assertFalse("A name that only starts with a listed name should not match.", matcher.matches("desktop.ini.bak"));
+	}
+
+	/**
+	 * Test method for {@link timeAnalyser.NameMatcher#matches(java.lang.String)}.
+	 */
+	@Test
+	public void globPatterns_Should_MatchWildcards() {
+		NameMatcher matcher = new NameMatcher(new String[] {"*.docx", "invoice_??.pdf"});
+		assertTrue(matcher.matches("Report.DOCX"));
+		assertTrue(matcher.matches(".docx"));
+		assertTrue(matcher.matches("invoice_01.pdf"));
+		assertFalse("? should match exactly one character.", matcher.matches("invoice_1.pdf"));
+		assertFalse("Characters other than the wildcards should be matched literally.", matcher.matches("reportxdocx"));
+	}
+
+}
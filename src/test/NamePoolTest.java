@@ -0,0 +1,66 @@
+/**
+ *
+ */
+package test;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import timeAnalyser.NamePool;
+
+/**
+ * @author Jelle Bouma
+ *
+ */
+public class NamePoolTest {
+
+	/**
+	 * Test method for {@link timeAnalyser.NamePool#intern(java.lang.String)}.
+	 */
+	@Test
+	public void repeatedName_Should_BeKeptOnce() {
+		NamePool pool = new NamePool();
+		int id = pool.intern("desktop.ini");
+		char[] chars = "..desktop.ini..".toCharArray();
+		assertEquals("A decoded name should get the id of the same name.", id, pool.intern(chars, 2, 11));
+		assertNotEquals("Names that differ in case are different names.", id, pool.intern("Desktop.ini"));
+		assertEquals(3, pool.size());
+		assertEquals("desktop.ini", pool.getName(id));
+		assertEquals("", pool.getName(pool.intern("")));
+	}
+
+	/**
+	 * Test method for {@link timeAnalyser.NamePool#getName(int)}.
+	 */
+	@Test
+	public void nonASCIIName_Should_BeKeptWhole() {
+		NamePool pool = new NamePool();
+		String[] names = {"caf\u00e9.txt", "\u65e5\u672c.doc", "\u00ff", "plain"};
+		int[] ids = new int[names.length];
+		for (int ii = 0; ii < names.length; ii++) {
+			ids[ii] = pool.intern(names[ii]);
+		}
+		for (int ii = 0; ii < names.length; ii++) {
+			assertEquals(names[ii], pool.getName(ids[ii]));
+		}
+	}
+
+	/**
+	 * Test method for {@link timeAnalyser.NamePool#intern(java.lang.String)}.
+	 */
+	@Test
+	public void manyNames_Should_KeepTheirIDsWhileThePoolGrows() {
+		NamePool pool = new NamePool();
+		int[] ids = new int[20000];
+		for (int ii = 0; ii < ids.length; ii++) {
+			ids[ii] = pool.intern("~WRL" + ii + ".tmp");
+		}
+		for (int ii = 0; ii < ids.length; ii++) {
+			assertEquals(ids[ii], pool.intern("~WRL" + ii + ".tmp"));
+			assertEquals("~WRL" + ii + ".tmp", pool.getName(ids[ii]));
+		}
+		assertEquals(ids.length + 1, pool.size());
+	}
+
+}
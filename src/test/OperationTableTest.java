@@ -0,0 +1,141 @@
+/**
+ *
+ */
+package test;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import timeAnalyser.*;
+
+/**
+ * @author Jelle Bouma
+ *
+ */
+public class OperationTableTest {
+
+	private final long TIME_VALUE = 132061996440000000L;
+
+	/**
+	 * @return a few file operations, of which some have the same effect on meta-data for some markings
+	 */
+	private static ArrayList<Operation> getOperations() {
+		ArrayList<Operation> operations = new ArrayList<>();
+		operations.add(new Operation("Create", ResultType.OP_START, ResultType.OP_START, ResultType.OP_START, ResultType.OP_START, ResultType.OP_START, ResultType.OP_START, ResultType.OP_START, ResultType.OP_START));
+		operations.add(new Operation("Copy", ResultType.OP_START, ResultType.SRC, ResultType.OP_END, ResultType.OP_START, ResultType.OP_START, ResultType.OP_START, ResultType.OP_START, ResultType.OP_START, 0));
+		operations.add(new Operation("Update", ResultType.U, ResultType.OP_END, ResultType.OP_START, ResultType.U, ResultType.U, ResultType.U, ResultType.U, ResultType.U, -1, -1));
+		operations.add(new Operation("Update directory", ResultType.U, ResultType.OP_END, ResultType.OP_START, ResultType.OP_END, ResultType.U, ResultType.U, ResultType.U, ResultType.U, -1, 1));
+		operations.add(new Operation("Move in the same volume", ResultType.U, ResultType.U, ResultType.OP_START, ResultType.U, ResultType.SI_SRC, ResultType.SI_SRC, ResultType.SI_SRC, ResultType.SI_SRC));
+		operations.add(new Operation("Attribute change", ResultType.U, ResultType.U, ResultType.OP_START, ResultType.U, ResultType.U, ResultType.U, ResultType.U, ResultType.U));
+		operations.add(new Operation("Access with last access update enabled", ResultType.U, ResultType.U, ResultType.U, ResultType.OP_START, ResultType.U, ResultType.U, ResultType.U, ResultType.U));
+		operations.add(new Operation("Use of a time-stamp change tool", ResultType.ANY, ResultType.ANY, ResultType.OP_START, ResultType.ANY, ResultType.U, ResultType.U, ResultType.U, ResultType.U));
+		return operations;
+	}
+
+	/**
+	 * @param offsets the amount of seconds every time-stamp is after the first
+	 * @param isDirectory if the meta-data describes a directory
+	 * @return file meta-data with the time-stamps
+	 */
+	private FileMetadata getMetadata(int[] offsets, boolean isDirectory) {
+		FileMetadata metadata = new FileMetadata();
+		metadata.setDirectory(isDirectory);
+		Timestamp[] si = new Timestamp[4];
+		Timestamp[] fn = new Timestamp[4];
+		for (int ii = 0; ii < 4; ii++) {
+			si[ii] = new Timestamp(TIME_VALUE + offsets[ii] * 10000000L);
+			fn[ii] = new Timestamp(TIME_VALUE + offsets[ii + 4] * 10000000L);
+		}
+		metadata.setSI(si);
+		metadata.setFN(fn);
+		return metadata;
+	}
+
+	/**
+	 * Matches the operations one by one and compares every matched operation with the first operation of every list, as the table should give the same lists.
+	 */
+	private static ArrayList<ArrayList<Operation>> matchOneByOne(ArrayList<Operation> operations, FileMetadata metadata, Marking marking) {
+		ArrayList<ArrayList<Operation>> matchedOperations = new ArrayList<>();
+		matchedOperations.add(new ArrayList<>());
+		for (Operation operation : operations) {
+			if (operation.matches(metadata, marking)) {
+				for (ArrayList<Operation> timeMatchOperations : matchedOperations) {
+					if (timeMatchOperations.isEmpty()) {
+						timeMatchOperations.add(operation);
+						matchedOperations.add(new ArrayList<>());
+						break;
+					}
+					if (timeMatchOperations.get(0).equalsForMarking(operation, marking)) {
+						timeMatchOperations.add(operation);
+						break;
+					}
+				}
+			}
+		}
+		return matchedOperations;
+	}
+
+	/**
+	 * Test method for {@link timeAnalyser.OperationTable#match(timeAnalyser.FileMetadata, timeAnalyser.Marking)}.
+	 */
+	@Test
+	public void table_Should_MatchTheSameListsAsOperationsMatchedOneByOne() {
+		ArrayList<Operation> operations = getOperations();
+		OperationTable table = new OperationTable(operations);
+		int[][] offsets = {{0, 0, 0, 0, 0, 0, 0, 0}, {0, -5, 3, 0, 0, 0, 0, 0}, {-9, -5, 3, 3, -9, -9, -9, -9}, {2, 2, 7, 2, 2, 2, 2, 2}};
+		for (int[] offset : offsets) {
+			for (int directory = 0; directory < 2; directory++) {
+				FileMetadata metadata = getMetadata(offset, directory == 1);
+				for (int bitmap = 0; bitmap < 256; bitmap++) {
+					Marking marking = new Marking();
+					for (int ii = 0; ii < 8; ii++) {
+						if ((bitmap & (1 << ii)) != 0) {
+							marking.mark(ii);
+						}
+					}
+					assertEquals("Different lists for marking " + bitmap, matchOneByOne(operations, metadata, marking), table.match(metadata, marking));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Test method for {@link timeAnalyser.OperationTable#match(timeAnalyser.FileMetadata, timeAnalyser.Marking)}.
+	 */
+	@Test
+	public void timestampsAtOtherTimes_Should_GetTheCachedMatches() {
+		OperationTable table = new OperationTable(getOperations());
+		Marking marking = new Marking();
+		ArrayList<ArrayList<Operation>> matches = table.match(getMetadata(new int[] {0, -5, 3, 0, 0, 0, 0, 0}, false), marking);
+		assertEquals(1, table.getCache().getMisses());
+		assertSame("Time-stamps with the same relations one hour later should get the same matches.", matches, table.match(getMetadata(new int[] {3600, 3595, 3603, 3600, 3600, 3600, 3600, 3600}, false), marking));
+		assertEquals(1, table.getCache().getHits());
+		table.match(getMetadata(new int[] {0, -5, 3, 0, 0, 0, 0, 0}, true), marking);
+		marking.mark(1);
+		table.match(getMetadata(new int[] {0, -5, 3, 0, 0, 0, 0, 0}, false), marking);
+		assertEquals("Directories and other markings should not get the matches of files for the empty marking.", 3, table.getCache().getMisses());
+	}
+
+	/**
+	 * Test method for {@link timeAnalyser.OperationTable#matchAll(timeAnalyser.FileMetadata, timeAnalyser.Marking)}.
+	 */
+	@Test
+	public void matchAll_Should_KeepTheOrderOfTheOperations() {
+		ArrayList<Operation> operations = getOperations();
+		OperationTable table = new OperationTable(operations);
+		FileMetadata metadata = getMetadata(new int[] {0, -5, 3, 0, 0, 0, 0, 0}, false);
+		Marking marking = new Marking();
+		ArrayList<Operation> expected = new ArrayList<>();
+		for (Operation operation : operations) {
+			if (operation.matches(metadata, marking)) {
+				expected.add(operation);
+			}
+		}
+		assertFalse(expected.isEmpty());
+		assertEquals(expected, table.matchAll(metadata, marking));
+	}
+
+}
@@ -69,6 +69,20 @@ public class OperationTest {
 		assertFalse("Time-stamps matched file name change operation while the file has only been created. Likely there is something wrong with matches()", fileNameChange.matches(metadataCausedByCreation, marking));
 	}
 
+	/**
+	 * Test method for {@link timeAnalyser.Operation#matches(timeAnalyser.FileMetadata, timeAnalyser.Marking)}.
+	 * Time-stamps that are changed after they have been matched should be matched again as they are after the change.
+	 */
+	@Test
+	public void changedTimestamps_Should_BeMatchedAsTheyAreAfterTheChange() {
+		Marking marking = new Marking();
+		timestampsCausedByCreationSI[0] = new Timestamp(1L);
+		metadataCausedByCreation.setSI(timestampsCausedByCreationSI);
+		assertFalse("Time-stamps matched the creation operation while $SI.C is earlier than the others. Likely there is something wrong with matches()", creation.matches(metadataCausedByCreation, marking));
+		metadataCausedByCreation.getTimestamps().copyTimestamp(1, 0);
+		assertTrue("Time-stamps did not match the creation operation after $SI.C was set to the time of the others. Likely the relations between the time-stamps were not worked out again.", creation.matches(metadataCausedByCreation, marking));
+	}
+
 	/**
 	 * Test method for {@link timeAnalyser.Operation#hasCopiedTimestamps()}.
 	 */
@@ -0,0 +1,151 @@
+/**
+ *
+ */
+package test;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import timeAnalyser.Entry;
+import timeAnalyser.FileMetadata;
+import timeAnalyser.MFTReader;
+import timeAnalyser.Timestamp;
+
+/**
+ * Measures the bytes allocated and the time taken per parsed MFT entry, for the decoder that wraps a new buffer for every field (before) and for the MFTReader decoder (after).
+ * Run the main method, the results are printed to standard out.
+ * Allocation is measured with {@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)}, which is available on HotSpot based JVMs.
+ * @author Jelle Bouma
+ *
+ */
+public class ParseAllocationBenchmark {
+
+	private static final int ENTRY_SIZE = 1024;
+	private static final int ENTRIES = 4096;
+	private static final int ROUNDS = 50;
+
+	public static void main(String[] args) {
+		ByteBuffer mft = ByteBuffer.allocate(ENTRY_SIZE * ENTRIES).order(ByteOrder.LITTLE_ENDIAN);
+		for (int ii = 0; ii < ENTRIES; ii++) {
+			writeEntry(mft, ii * ENTRY_SIZE, ii);
+		}
+		MFTReader reader = new MFTReader(new File("benchmark"), ENTRY_SIZE);
+		for (int ii = 0; ii < 5; ii++) { // warm up both decoders
+			measure("", () -> parseAllBefore(mft.array()));
+			measure("", () -> parseAllAfter(reader, mft));
+		}
+		System.out.println("decoder\tbytes/entry\tns/entry");
+		measure("before", () -> parseAllBefore(mft.array()));
+		measure("after", () -> parseAllAfter(reader, mft));
+	}
+
+	private static void measure(String name, Runnable parseAll) {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long threadID = Thread.currentThread().getId();
+		long allocatedBefore = threads.getThreadAllocatedBytes(threadID);
+		long start = System.nanoTime();
+		for (int ii = 0; ii < ROUNDS; ii++) {
+			parseAll.run();
+		}
+		long nanos = System.nanoTime() - start;
+		long allocated = threads.getThreadAllocatedBytes(threadID) - allocatedBefore;
+		if (!name.isEmpty()) {
+			System.out.println(name + "\t" + allocated / (ROUNDS * ENTRIES) + "\t" + nanos / (ROUNDS * ENTRIES));
+		}
+	}
+
+	private static void parseAllAfter(MFTReader reader, ByteBuffer mft) {
+		for (int ii = 0; ii < ENTRIES; ii++) {
+			reader.parseEntry(mft, ii * ENTRY_SIZE, ii);
+		}
+	}
+
+	private static void parseAllBefore(byte[] mft) {
+		for (int ii = 0; ii < ENTRIES; ii++) {
+			parseEntryBefore(Arrays.copyOfRange(mft, ii * ENTRY_SIZE, (ii + 1) * ENTRY_SIZE), ii);
+		}
+	}
+
+	/**
+	 * The decoder as it was before absolute reads, one new buffer for every field that is read.
+	 */
+	private static Entry parseEntryBefore(byte[] bytes, int index) {
+		boolean signatureIntact = ByteBuffer.wrap(bytes, 0, 4).getInt() == 0x46494C45;
+		Entry entry = new Entry(index, signatureIntact);
+		if (signatureIntact) {
+			entry.setNTFSSequenceNumber(wrapAndOrder(bytes, 0x10, 2).getShort());
+			int attributeOffset = wrapAndOrder(bytes, 0x14, 2).getShort();
+			FileMetadata metadata = new FileMetadata();
+			metadata.setDirectory(wrapAndOrder(bytes, 0x16, 2).getShort() > 0x01);
+			metadata.setDeleted(wrapAndOrder(bytes, 0x16, 2).getShort() % 0x02 == 0x00);
+			while (attributeOffset < bytes.length) {
+				int attributeType = wrapAndOrder(bytes, attributeOffset, 4).getInt();
+				if (attributeType == 0xFFFFFFFF) {
+					break;
+				}
+				int attributeSize = wrapAndOrder(bytes, attributeOffset + 0x4, 4).getInt();
+				int contentOffset = attributeOffset + wrapAndOrder(bytes, attributeOffset + 0x14, 2).getShort();
+				attributeOffset += attributeSize;
+				if (attributeType == 0x00000010) {
+					Timestamp[] si = new Timestamp[4];
+					for (int ii = 0; ii < si.length; ii++) {
+						si[ii] = new Timestamp(wrapAndOrder(bytes, contentOffset + ii * 8, 8).getLong());
+					}
+					metadata.setSI(si);
+				}
+				if (attributeType == 0x00000030) {
+					metadata.setParentID(wrapAndOrder(bytes, contentOffset, 4).getInt());
+					Timestamp[] fn = new Timestamp[4];
+					for (int ii = 0; ii < fn.length; ii++) {
+						fn[ii] = new Timestamp(wrapAndOrder(bytes, contentOffset + ii * 8 + 8, 8).getLong());
+					}
+					metadata.setFN(fn);
+					metadata.setName(new String(Arrays.copyOfRange(bytes, contentOffset + 0x42, attributeOffset), java.nio.charset.StandardCharsets.UTF_16LE).trim());
+				}
+			}
+			entry.setFileMetadata(metadata);
+		}
+		return entry;
+	}
+
+	private static ByteBuffer wrapAndOrder(byte[] bs, int off, int len) {
+		return ByteBuffer.wrap(bs, off, len).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * Writes an in use file entry with a $STANDARD_INFORMATION and a $FILE_NAME attribute.
+	 */
+	private static void writeEntry(ByteBuffer mft, int base, int index) {
+		long time = 132061996440000000L + index;
+		mft.putInt(base, 0x454C4946); // "FILE"
+		mft.putShort(base + 0x10, (short) 1);
+		mft.putShort(base + 0x14, (short) 0x38);
+		mft.putShort(base + 0x16, (short) 0x01);
+		int attribute = base + 0x38;
+		mft.putInt(attribute, 0x10);
+		mft.putInt(attribute + 0x04, 0x60);
+		mft.putShort(attribute + 0x14, (short) 0x18);
+		for (int ii = 0; ii < 4; ii++) {
+			mft.putLong(attribute + 0x18 + ii * 8, time);
+		}
+		attribute += 0x60;
+		String name = "document" + index + ".docx";
+		int attributeSize = (0x18 + 0x42 + name.length() * 2 + 7) / 8 * 8;
+		mft.putInt(attribute, 0x30);
+		mft.putInt(attribute + 0x04, attributeSize);
+		mft.putShort(attribute + 0x14, (short) 0x18);
+		mft.putLong(attribute + 0x18, 5);
+		for (int ii = 0; ii < 4; ii++) {
+			mft.putLong(attribute + 0x20 + ii * 8, time);
+		}
+		mft.put(attribute + 0x18 + 0x40, (byte) name.length());
+		for (int ii = 0; ii < name.length(); ii++) {
+			mft.putChar(attribute + 0x18 + 0x42 + ii * 2, name.charAt(ii));
+		}
+		mft.putInt(attribute + attributeSize, 0xFFFFFFFF);
+	}
+
+}
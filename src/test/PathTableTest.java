@@ -0,0 +1,74 @@
+/**
+ *
+ */
+package test;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import timeAnalyser.EntryStore;
+import timeAnalyser.PathTable;
+
+/**
+ * @author Jelle Bouma
+ *
+ */
+public class PathTableTest {
+
+	/**
+	 * Sets an entry with a name and a parent directory.
+	 * @param store the store
+	 * @param position the position and index of the entry
+	 * @param parent the index of the parent directory
+	 * @param name the file name
+	 */
+	private static void setEntry(EntryStore store, int position, long parent, String name) {
+		store.setEntry(position, position, true, (short) 1);
+		store.setMetadata(position, true, false);
+		store.setName(position, parent, name);
+	}
+
+	/**
+	 * Test method for {@link timeAnalyser.PathTable#getPath(int)}.
+	 */
+	@Test
+	public void paths_Should_BeResolvedThroughTheirParentDirectories() {
+		EntryStore store = new EntryStore(12, false);
+		setEntry(store, 5, 5, ".");
+		setEntry(store, 6, 5, "Users");
+		setEntry(store, 7, 6, "report.docx");
+		setEntry(store, 8, 100, "orphan.txt"); // parent outside of the MFT
+		setEntry(store, 9, 4, "lost.txt"); // parent that was not read
+		setEntry(store, 10, 11, "a"); // cycle of 10 and 11
+		setEntry(store, 11, 10, "b");
+		setEntry(store, 1, 10, "below cycle");
+		PathTable paths = new PathTable(store);
+		assertEquals(".", paths.getPath(5));
+		assertEquals(".\\Users", paths.getPath(6));
+		assertEquals(".\\Users\\report.docx", paths.getPath(7));
+		assertEquals("", paths.getPath(8));
+		assertEquals("\\lost.txt", paths.getPath(9));
+		assertEquals("Entries on a cycle should get an empty path.", "", paths.getPath(10));
+		assertEquals("", paths.getPath(11));
+		assertEquals("\\below cycle", paths.getPath(1));
+		assertEquals("An entry that was not read has no path.", "", paths.getPath(0));
+	}
+
+	/**
+	 * Test method for {@link timeAnalyser.PathTable#PathTable(timeAnalyser.EntryStore)}.
+	 */
+	@Test
+	public void deepDirectoryTree_ShouldNot_OverflowTheStack() {
+		int depth = 200000;
+		EntryStore store = new EntryStore(depth + 6, false);
+		setEntry(store, 5, 5, "r");
+		for (int ii = 6; ii < depth + 6; ii++) {
+			setEntry(store, ii, ii + 1 < depth + 6 ? ii + 1 : 5, "d"); // every directory is in the one after it, the last in the root
+		}
+		PathTable paths = new PathTable(store);
+		assertEquals(1 + depth * 2, paths.getPath(6).length());
+		assertEquals("r\\d", paths.getPath(depth + 5));
+	}
+
+}
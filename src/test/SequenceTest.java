@@ -32,9 +32,9 @@ public class SequenceTest {
 	
 	@Before
 	public void initialiseMetadataAndItsTimestamps() {
-		for(int ii = 0; ii < AMOUNT_OF_TIMESTAMPS_PER_ATTRIBUTE; ii++) {
-			timestampsSI[ii] = new Timestamp(TIME_VALUE);
-			timestampsFN[ii] = new Timestamp(TIME_VALUE);
+		for(int ii = 0; ii < AMOUNT_OF_TIMESTAMPS_PER_ATTRIBUTE; ii++) { // every time-stamp has its own value, so that it is clear which time-stamp ends up where
+			timestampsSI[ii] = new Timestamp(TIME_VALUE + ii);
+			timestampsFN[ii] = new Timestamp(TIME_VALUE + AMOUNT_OF_TIMESTAMPS_PER_ATTRIBUTE + ii);
 		}
 		metadataCausedByCreate.setSI(timestampsSI);
 		metadataCausedByCreate.setFN(timestampsFN);
@@ -78,7 +78,7 @@ public class SequenceTest {
 		Timestamp[] timestampsInSIBeforeCopyingOperation = metadataBeforeCopyingOperation.getTimestamps().getSI();
 		boolean copiedBackCorrectly = true;
 		for(int ii = 0; ii < timestampsInSIBeforeCopyingOperation.length; ii++) { // all unmarked $FN time-stamps after file name change should be the same as $SI time-stamps before file name change
-			copiedBackCorrectly = copiedBackCorrectly && timestampsFN[ii] == timestampsInSIBeforeCopyingOperation[ii];
+			copiedBackCorrectly = copiedBackCorrectly && timestampsFN[ii].equals(timestampsInSIBeforeCopyingOperation[ii]);
 		}
 		assertTrue("Unmarked copied time-stamps were not copied back. Something likely went wrong with copying the timestamps back.", copiedBackCorrectly);
 		
@@ -95,10 +95,10 @@ public class SequenceTest {
 		metadataBeforeCopyingOperation = sequence.getEarliestMetadata();
 		timestampsInSIBeforeCopyingOperation = metadataBeforeCopyingOperation.getTimestamps().getSI();
 		copiedBackCorrectly = true;
-		copiedBackCorrectly = copiedBackCorrectly && timestampsSI[0] == timestampsInSIBeforeCopyingOperation[0];
-		copiedBackCorrectly = copiedBackCorrectly && timestampsFN[1] == timestampsInSIBeforeCopyingOperation[1];
-		copiedBackCorrectly = copiedBackCorrectly && timestampsFN[2] == timestampsInSIBeforeCopyingOperation[2];
-		copiedBackCorrectly = copiedBackCorrectly && timestampsSI[3] == timestampsInSIBeforeCopyingOperation[3];
+		copiedBackCorrectly = copiedBackCorrectly && timestampsSI[0].equals(timestampsInSIBeforeCopyingOperation[0]);
+		copiedBackCorrectly = copiedBackCorrectly && timestampsFN[1].equals(timestampsInSIBeforeCopyingOperation[1]);
+		copiedBackCorrectly = copiedBackCorrectly && timestampsFN[2].equals(timestampsInSIBeforeCopyingOperation[2]);
+		copiedBackCorrectly = copiedBackCorrectly && timestampsSI[3].equals(timestampsInSIBeforeCopyingOperation[3]);
 		assertTrue("Marked time-stamps were copied back for a copying operation. Something likely went wrong with copying the timestamps back.", copiedBackCorrectly);
 	}
 
@@ -0,0 +1,57 @@
+/**
+ *
+ */
+package test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import timeAnalyser.Entry;
+import timeAnalyser.FileMetadata;
+import timeAnalyser.Operation;
+import timeAnalyser.ResultType;
+import timeAnalyser.Timestamp;
+
+/**
+ * Analysed entries for the tests of the writers of entries.
+ * @author Jelle Bouma
+ *
+ */
+class TestEntries {
+
+	private static final Operation CREATE = new Operation("Create", ResultType.OP_START, ResultType.OP_START, ResultType.OP_START, ResultType.OP_START, ResultType.OP_START, ResultType.OP_START, ResultType.OP_START, ResultType.OP_START);
+
+	/**
+	 * @param index the index of the entry
+	 * @param name the file name
+	 * @param timeValue the time value of every time-stamp
+	 * @return an entry of which the file was created at the time
+	 */
+	static Entry getCreatedEntry(long index, String name, long timeValue) {
+		return getCreatedEntry(index, 0, name, timeValue);
+	}
+
+	/**
+	 * @param index the index of the entry
+	 * @param sequenceNumber the sequence number of the entry
+	 * @param name the file name
+	 * @param timeValue the time value of every time-stamp
+	 * @return an entry of which the file was created at the time
+	 */
+	static Entry getCreatedEntry(long index, int sequenceNumber, String name, long timeValue) {
+		FileMetadata metadata = new FileMetadata();
+		metadata.setName(name);
+		Timestamp[] timestamps = new Timestamp[4];
+		Arrays.fill(timestamps, new Timestamp(timeValue));
+		metadata.setSI(timestamps);
+		metadata.setFN(timestamps);
+		Entry entry = new Entry(index, true);
+		entry.setNTFSSequenceNumber(sequenceNumber);
+		entry.setFileMetadata(metadata);
+		ArrayList<Operation> matchedCreate = new ArrayList<>();
+		matchedCreate.add(CREATE);
+		entry.getSequence(0).add(metadata, matchedCreate);
+		return entry;
+	}
+
+}
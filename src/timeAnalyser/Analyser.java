@@ -0,0 +1,272 @@
+package timeAnalyser;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *
+ */
+
+/**
+ * Analyses entries by matching their time-stamps with file operations, with the configuration of a single run of the time-stamp analyser.
+ * An analyser holds no state of the entries it analyses, and the operation tables it matches with can be used by several threads at once,
+ * so one analyser analyses entries on any amount of threads.
+ * On a fork-join pool the sequences that branch off while an entry is analysed are filled as separate tasks, which idle analysers take over,
+ * so an entry with a combinatorial number of sequences does not hold up the analysis on a single thread. The sequences end up in the same order either way.
+ * The search of an entry can be limited in sequences, matching steps and time, so a corrupt or crafted entry can not stall the analysis; an entry that reaches a limit is marked as truncated.
+ * With a limit on sequences or steps the branches of an entry are filled in turn on a single thread, breadth first in the order the sequences are written,
+ * so a truncated entry keeps the sequences that an analysis without limits writes first, and which sequences are cut off does not depend on how the analysers are scheduled.
+ * @author Jelle Bouma
+ *
+ */
+public class Analyser {
+
+	private final OperationTable operations; // the file operations that are matched first, compiled for this analyser so that its cache of matches is its own
+	private final OperationTable forgeryOperations; // the file operations that are matched when no other operations can be matched
+	private final int maxSequences; // the most sequences of an entry
+	private final long maxSteps; // the most matching steps for an entry
+	private final long maxNanos; // the most nanoseconds to analyse an entry for, 0 for no limit
+
+	/**
+	 * Constructs an analyser that does not limit the search of an entry.
+	 * @param operationList the file operations
+	 * @param priority either REGULAR to match forgery operations only when regular operations can not be matched, or EQUAL to always match them
+	 */
+	public Analyser(OperationList operationList, Priority priority) {
+		this(operationList, priority, Integer.MAX_VALUE, Long.MAX_VALUE, 0);
+	}
+
+	/**
+	 * @param operationList the file operations
+	 * @param priority either REGULAR to match forgery operations only when regular operations can not be matched, or EQUAL to always match them
+	 * @param maxSequences the most sequences of an entry
+	 * @param maxSteps the most matching steps for an entry, summed over its sequences
+	 * @param maxMillis the most milliseconds to analyse an entry for, 0 for no limit
+	 */
+	public Analyser(OperationList operationList, Priority priority, int maxSequences, long maxSteps, long maxMillis) {
+		operations = new OperationTable(priority == Priority.REGULAR ? operationList.operations : operationList.allOperations);
+		forgeryOperations = new OperationTable(operationList.forgeryOperations);
+		this.maxSequences = maxSequences;
+		this.maxSteps = maxSteps;
+		this.maxNanos = TimeUnit.MILLISECONDS.toNanos(maxMillis);
+	}
+
+	/**
+	 * Analyses the entry finding all possible sequences of operations that might have led to the meta-data of the entry.
+	 * Entries are analysed independently of each other, so different entries can be analysed on different threads.
+	 * @param entry 
+	 */
+	void analyseEntry(Entry entry) {
+		Sequence firstSequence = entry.getSequence(0);
+		FileMetadata latestMetadata = firstSequence.getMetadata(0);
+		if (latestMetadata.isDeleted()) {
+			firstSequence.addDeletionOperation(latestMetadata);
+		}
+		Budget budget = new Budget(entry.getAmountOfSequences());
+		ArrayDeque<Branch> branches = new ArrayDeque<>();
+		for (int ii = 0; ii < entry.getAmountOfSequences(); ii++) {
+			branches.add(new Branch(entry.getSequence(ii), budget));
+		}
+		boolean forking = maxSequences == Integer.MAX_VALUE && maxSteps == Long.MAX_VALUE && ForkJoinTask.inForkJoinPool(); // with a limit on sequences or steps the branches are filled in a fixed order
+		if (forking) {
+			for (Branch branch : branches) {
+				branch.compute();
+			}
+		}
+		while (!branches.isEmpty()) { // add the sequences breadth first, in the order in which filling the sequences one after the other would add them
+			Branch branch = branches.poll();
+			if (!forking) { // fill the sequence only now, after the sequences before it
+				branch.fill();
+			}
+			for (Branch branched : branch.branches) {
+				entry.add(branched.sequence);
+				branches.add(branched);
+			}
+		}
+		if (budget.reached != null) {
+			entry.setTruncation(budget.reached);
+		}
+	}
+	
+	
+	/**
+	 * Fills a sequence by matching all time-stamps with file operations.
+	 * This might create additional sequences as file operations with different effects on meta-data can be matched to the same time-stamps.
+	 * @param sequence The sequence to be filled.
+	 * @param branches The list to add the additional sequences to, in the order they branch off.
+	 * @param budget The budget of the entry, filling stops once a limit of it has been reached.
+	 */
+	private void fillSequence(Sequence sequence, ArrayList<Sequence> branches, Budget budget) {
+		while (!sequence.isFullyMatched()) { // While there are unmarked time-stamps left (there is a return within this loop in case nothing can be matched anymore).
+			if (!budget.step()) { // If a limit has been reached, leave the sequence as it is.
+				return;
+			}
+			FileMetadata metadata = sequence.getEarliestMetadata();
+			Marking prevMarking = sequence.getMarking();
+			ArrayList<ArrayList<Operation>> matchedOperations = fillList(metadata, prevMarking);
+			if (matchedOperations.get(0).size() == 0) { // If no regular file operations can be matched, try to match forgery operations.
+				ArrayList<Operation> matchedForgery = forgeryOperations.matchAll(metadata, prevMarking);
+				if(matchedForgery.size() > 0) { // If a forgery operation has been matched.
+					sequence.addForgery(metadata, matchedForgery);
+				}
+				return; // If forgery has been committed or the time-stamps can't be matched with anything else, stop trying to match more time-stamps.
+			}
+			for (int ii = matchedOperations.size() - 2; ii >= 0; ii--) { // For every list of matched operations, starting at the tail (tail list is ignored because it is empty).
+				Operation firstOperation = matchedOperations.get(ii).get(0);
+				boolean splitting = !firstOperation.hasCopying() && firstOperation.isCombiningOperation() && firstOperation.isCombiningOperationFor(prevMarking);
+				int newSequences = (ii == 0 ? 0 : 1) + (splitting ? 1 : 0);
+				if (newSequences > 0 && !budget.addSequences(newSequences)) { // If the limit leaves no room for the sequences these operations add, the sequence is left as it is.
+					continue;
+				}
+				Sequence newSequence;
+				if (ii == 0) { // The first list of matched operations continues the initial sequence.
+					newSequence = sequence;
+				}
+				else { // Other lists of matched operations create a new sequence that continue where the initial sequence left off.
+					newSequence = sequence.clone();
+				}
+				if (firstOperation.hasCopying()) { // If an operation copies time-stamps then they need to be copied back, to reverse engineer the operations that happened before.
+					newSequence.addWithCopying(metadata, matchedOperations.get(ii));
+				}
+				else {
+					if (splitting) { // If an operation combines time-stamps from two files, then the files need to be split again, to reverse engineer the operations that happened before.
+						branches.add(newSequence.addSplit(metadata, matchedOperations.get(ii)));
+					}
+					else { // Operation does not copy time-stamps or combine time-stamps from different files.
+						newSequence.add(metadata, matchedOperations.get(ii));
+					}
+				}
+				if (ii != 0) {
+					branches.add(newSequence);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Matches file operations to file meta-data, putting operations with the same effect on meta-data for the marking in the same list.
+	 * @param metadata the file meta-data
+	 * @param prevMarking marking which indicates which time-stamps have been matched already
+	 * @return the lists of matched operations, the last list is kept empty. The lists may be shared with other files and should not be modified.
+	 */
+	public ArrayList<ArrayList<Operation>> fillList(FileMetadata metadata, Marking prevMarking) {
+		return operations.match(metadata, prevMarking);
+	}
+
+	/**
+	 * @return the cache of the matches of the file operations that are matched first
+	 */
+	MatchCache getCache() {
+		return operations.getCache();
+	}
+
+	/**
+	 * The filling of a sequence and, after it, of the sequences that branch off while it is filled.
+	 * As a task the branches are forked while other analysers are out of work, otherwise they are filled in turn.
+	 */
+	private class Branch extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final Sequence sequence;
+		private final Budget budget;
+		private final ArrayList<Branch> branches = new ArrayList<>(); // the sequences that branched off, in the order they branched off
+
+		Branch(Sequence sequence, Budget budget) {
+			this.sequence = sequence;
+			this.budget = budget;
+		}
+
+		/**
+		 * Fills the sequence, leaving the sequences that branch off it to be filled.
+		 */
+		void fill() {
+			ArrayList<Sequence> branched = new ArrayList<>();
+			fillSequence(sequence, branched, budget);
+			for (Sequence branchedSequence : branched) {
+				branches.add(new Branch(branchedSequence, budget));
+			}
+		}
+
+		@Override
+		protected void compute() {
+			fill();
+			ArrayList<Branch> forked = new ArrayList<>();
+			for (Branch branch : branches) {
+				if (ForkJoinTask.getSurplusQueuedTaskCount() <= Pipeline.MAX_SURPLUS_TASKS) {
+					branch.fork();
+					forked.add(branch);
+				}
+				else {
+					branch.compute();
+				}
+			}
+			for (Branch branch : forked) {
+				branch.join();
+			}
+		}
+	}
+
+	/**
+	 * What is left of the limits of the search of an entry, shared by the branches of the entry.
+	 */
+	private class Budget {
+		private final AtomicInteger sequences;
+		private final AtomicLong steps = new AtomicLong();
+		private final long deadline;
+		private volatile String reached; // the first limit that was reached, null while no limit has been reached
+
+		/**
+		 * @param sequences the amount of sequences the entry starts with
+		 */
+		Budget(int sequences) {
+			this.sequences = new AtomicInteger(sequences);
+			deadline = System.nanoTime() + maxNanos;
+		}
+
+		/**
+		 * Takes a matching step from the budget.
+		 * @return if the step may be taken, false once a limit has been reached
+		 */
+		boolean step() {
+			if (reached != null) {
+				return false;
+			}
+			if (steps.incrementAndGet() > maxSteps) {
+				reach("the limit of " + maxSteps + " steps");
+				return false;
+			}
+			if (maxNanos > 0 && System.nanoTime() - deadline > 0) {
+				reach("the time limit of " + TimeUnit.NANOSECONDS.toMillis(maxNanos) + " ms");
+				return false;
+			}
+			return true;
+		}
+
+		/**
+		 * Takes new sequences from the budget, all or none of them.
+		 * @param amount the amount of sequences
+		 * @return if the sequences may be added, false once a limit has been reached
+		 */
+		boolean addSequences(int amount) {
+			if (reached != null) {
+				return false;
+			}
+			if (sequences.addAndGet(amount) > maxSequences) {
+				reach("the limit of " + maxSequences + " sequences");
+				return false;
+			}
+			return true;
+		}
+
+		private synchronized void reach(String limit) {
+			if (reached == null) {
+				reached = limit;
+			}
+		}
+	}
+
+}
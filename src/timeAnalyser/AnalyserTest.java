@@ -0,0 +1,356 @@
+/**
+ *
+ */
+package timeAnalyser;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+/**
+ * @author Jelle Bouma
+ *
+ */
+public class AnalyserTest {
+
+	static final long TIME_VALUE = 132061996440000000L; // some time-stamp
+	static final long SECOND = 10000000L; // a second in tenth microseconds
+	static final long[][] OFFSETS = { // the offsets in seconds of $SI.C, $SI.W, $SI.E, $SI.A, $FN.C, $FN.W, $FN.E and $FN.A from the time-stamp, for several kinds of entries
+		{0, 2, 3, 1, 1, 1, 1, 1},
+		{0, 0, 0, 0, 0, 0, 0, 0},
+		{0, 5, 5, 5, 0, 0, 0, 0},
+		{5, 0, 5, 5, 5, 5, 5, 5},
+		{0, 0, 3, 0, 3, 3, 3, 3},
+		{0, 0, 0, 0, 10, 10, 10, 10},
+		{3, 1, 4, 1, 5, 9, 2, 6}
+	};
+
+	/**
+	 * @param timeValues the time values of $SI.C, $SI.W, $SI.E, $SI.A, $FN.C, $FN.W, $FN.E and $FN.A
+	 * @return an entry of a file with the time-stamps, which has not been analysed
+	 */
+	static Entry createEntry(long... timeValues) {
+		return createEntry(1, timeValues);
+	}
+
+	/**
+	 * @param index the index of the entry
+	 * @param timeValues the time values of $SI.C, $SI.W, $SI.E, $SI.A, $FN.C, $FN.W, $FN.E and $FN.A
+	 * @return an entry of a file with the time-stamps, which has not been analysed
+	 */
+	static Entry createEntry(long index, long[] timeValues) {
+		FileMetadata metadata = new FileMetadata();
+		Timestamp[] si = new Timestamp[4];
+		Timestamp[] fn = new Timestamp[4];
+		for (int ii = 0; ii < 4; ii++) {
+			si[ii] = new Timestamp(timeValues[ii]);
+			fn[ii] = new Timestamp(timeValues[ii + 4]);
+		}
+		metadata.setSI(si);
+		metadata.setFN(fn);
+		Entry entry = new Entry(index, true);
+		entry.setFileMetadata(metadata);
+		return entry;
+	}
+
+	/**
+	 * @return an entry of which the time-stamps can be matched in 69 sequences, 18 of which are split off by operations that combine the time-stamps of two files
+	 */
+	static Entry createAmbiguousEntry() {
+		return createEntry(TIME_VALUE, TIME_VALUE + 2 * SECOND, TIME_VALUE + 3 * SECOND, TIME_VALUE + SECOND, TIME_VALUE + SECOND, TIME_VALUE + SECOND, TIME_VALUE + SECOND, TIME_VALUE + SECOND);
+	}
+
+	/**
+	 * @param entry an analysed entry
+	 * @return the sequences of the entry as they are printed, in the order of the entry
+	 */
+	static ArrayList<String> getSequences(Entry entry) {
+		ArrayList<String> sequences = new ArrayList<>();
+		for (int ii = 0; ii < entry.getAmountOfSequences(); ii++) {
+			sequences.add(entry.getSequence(ii).toString());
+		}
+		return sequences;
+	}
+
+	/**
+	 * Fills a sequence, and every sequence that branches off it, by expanding the tree of matches depth first without any limit.
+	 * @param sequence the sequence
+	 * @param operations the operations that are matched first
+	 * @param forgeryOperations the operations that are matched when no other operations can be matched
+	 * @param filled the list to add the filled sequences to
+	 */
+	private static void expand(Sequence sequence, OperationTable operations, OperationTable forgeryOperations, ArrayList<String> filled) {
+		while (!sequence.isFullyMatched()) {
+			FileMetadata metadata = sequence.getEarliestMetadata();
+			Marking marking = sequence.getMarking();
+			ArrayList<ArrayList<Operation>> matched = operations.match(metadata, marking);
+			if (matched.get(0).isEmpty()) {
+				ArrayList<Operation> matchedForgery = forgeryOperations.matchAll(metadata, marking);
+				if (!matchedForgery.isEmpty()) {
+					sequence.addForgery(metadata, matchedForgery);
+				}
+				break;
+			}
+			for (int ii = matched.size() - 2; ii >= 0; ii--) {
+				Sequence next = ii == 0 ? sequence : sequence.clone();
+				Operation first = matched.get(ii).get(0);
+				if (first.hasCopying()) {
+					next.addWithCopying(metadata, matched.get(ii));
+				}
+				else if (first.isCombiningOperation() && first.isCombiningOperationFor(marking)) {
+					expand(next.addSplit(metadata, matched.get(ii)), operations, forgeryOperations, filled);
+				}
+				else {
+					next.add(metadata, matched.get(ii));
+				}
+				if (ii != 0) {
+					expand(next, operations, forgeryOperations, filled);
+				}
+			}
+		}
+		filled.add(sequence.toString());
+	}
+
+	/**
+	 * Test method for {@link timeAnalyser.Analyser#analyseEntry(timeAnalyser.Entry)}.
+	 */
+	@Test
+	public void ambiguousEntry_Should_GetEverySequenceOfTheTreeOfMatches() {
+		OperationList operationList = new OperationList();
+		Entry analysed = createAmbiguousEntry();
+		new Analyser(operationList, Priority.REGULAR).analyseEntry(analysed);
+		ArrayList<String> expanded = new ArrayList<>();
+		expand(createAmbiguousEntry().getSequence(0), new OperationTable(operationList.operations), new OperationTable(operationList.forgeryOperations), expanded);
+		ArrayList<String> sequences = getSequences(analysed);
+		assertEquals(69, sequences.size());
+		Collections.sort(sequences);
+		Collections.sort(expanded);
+		assertEquals(expanded, sequences);
+	}
+
+	/**
+	 * Asserts that an entry that was cut off at a limit keeps the sequences that the analysis without limits writes first, each matched as far as the limit allowed.
+	 * @param truncated the entry analysed with a limit
+	 * @param analysed the entry analysed without limits
+	 */
+	private static void assertTruncatedFrom(Entry truncated, Entry analysed) {
+		assertTrue(truncated.getAmountOfSequences() <= analysed.getAmountOfSequences());
+		for (int ii = 0; ii < truncated.getAmountOfSequences(); ii++) {
+			TimeMatch[] matches = truncated.getSequence(ii).getTimeMatches();
+			TimeMatch[] fullMatches = analysed.getSequence(ii).getTimeMatches();
+			assertTrue(matches.length <= fullMatches.length);
+			for (int jj = 0; jj < matches.length; jj++) {
+				assertEquals(fullMatches[jj].toString(), matches[jj].toString());
+			}
+		}
+	}
+
+	/**
+	 * Test method for {@link timeAnalyser.Analyser#analyseEntry(timeAnalyser.Entry)}.
+	 */
+	@Test
+	public void limitOnSequences_Should_TruncateTheSequencesWrittenLast() {
+		Entry analysed = createAmbiguousEntry();
+		new Analyser(new OperationList(), Priority.REGULAR).analyseEntry(analysed);
+		Entry truncated = createAmbiguousEntry();
+		new Analyser(new OperationList(), Priority.REGULAR, 5, Long.MAX_VALUE, 0).analyseEntry(truncated);
+		assertTrue(truncated.isTruncated());
+		assertTrue(truncated.getAmountOfSequences() <= 5);
+		assertTrue(truncated.toString().endsWith("(Analysis truncated at the limit of 5 sequences)"));
+		assertTruncatedFrom(truncated, analysed);
+	}
+
+	/**
+	 * Test method for {@link timeAnalyser.Analyser#analyseEntry(timeAnalyser.Entry)}.
+	 */
+	@Test
+	public void limitOnSteps_Should_TruncateTheSequencesWrittenLast() {
+		Entry analysed = createAmbiguousEntry();
+		new Analyser(new OperationList(), Priority.REGULAR).analyseEntry(analysed);
+		Entry truncated = createAmbiguousEntry();
+		new Analyser(new OperationList(), Priority.REGULAR, Integer.MAX_VALUE, 10, 0).analyseEntry(truncated);
+		assertTrue(truncated.isTruncated());
+		assertTrue(truncated.toString().endsWith("(Analysis truncated at the limit of 10 steps)"));
+		assertTruncatedFrom(truncated, analysed);
+	}
+
+	/**
+	 * Test method for {@link timeAnalyser.Analyser#analyseEntry(timeAnalyser.Entry)}.
+	 */
+	@Test
+	public void limitOnTime_Should_TruncateTheAnalysis() {
+		Analyser analyser = new Analyser(new OperationList(), Priority.REGULAR, Integer.MAX_VALUE, Long.MAX_VALUE, 1) {
+			@Override
+			public ArrayList<ArrayList<Operation>> fillList(FileMetadata metadata, Marking prevMarking) {
+				try {
+					Thread.sleep(2); // every step takes longer than the time limit
+				}
+				catch (InterruptedException interruptedEx) {
+					Thread.currentThread().interrupt();
+				}
+				return super.fillList(metadata, prevMarking);
+			}
+		};
+		Entry truncated = createAmbiguousEntry();
+		analyser.analyseEntry(truncated);
+		assertTrue(truncated.isTruncated());
+		assertTrue(truncated.toString().endsWith("(Analysis truncated at the time limit of 1 ms)"));
+	}
+
+	/**
+	 * Test method for {@link timeAnalyser.Analyser#analyseEntry(timeAnalyser.Entry)}.
+	 */
+	@Test
+	public void entryWithoutLimits_Should_NotBeTruncated() {
+		Entry analysed = createAmbiguousEntry();
+		new Analyser(new OperationList(), Priority.REGULAR).analyseEntry(analysed);
+		assertFalse(analysed.isTruncated());
+		assertFalse(analysed.toString().contains("(Analysis truncated at"));
+	}
+
+	/**
+	 * Test method for {@link timeAnalyser.Pipeline#submit(timeAnalyser.Entry[], int, int, long)}.
+	 */
+	@Test
+	public void truncatedEntry_Should_PassTheIrregularFilter() throws IOException {
+		assertEquals("", analyseIrregular(new Analyser(new OperationList(), Priority.REGULAR)));
+		String output = analyseIrregular(new Analyser(new OperationList(), Priority.REGULAR, 5, Long.MAX_VALUE, 0));
+		assertTrue(output.contains("(Analysis truncated at the limit of 5 sequences)"));
+	}
+
+	/**
+	 * @param analyser the analyser to analyse the ambiguous entry with
+	 * @return the output of a pipeline that writes the entries with irregular time-stamps
+	 */
+	private static String analyseIrregular(Analyser analyser) throws IOException {
+		File output = File.createTempFile("output", ".txt");
+		try {
+			try (EntryWriter writer = new EntryWriter(output)) {
+				Pipeline pipeline = new Pipeline(analyser, 1, 1, 1, writer, Filter.IRREGULAR);
+				pipeline.submit(new Entry[] {createAmbiguousEntry()}, 0, 1, 0);
+				pipeline.finish();
+			}
+			return new String(Files.readAllBytes(output.toPath()), StandardCharsets.UTF_8).trim();
+		}
+		finally {
+			output.delete();
+		}
+	}
+
+	/**
+	 * Test method for {@link timeAnalyser.Analyser#analyseEntry(timeAnalyser.Entry)}.
+	 */
+	@Test
+	public void ambiguousEntryOnForkJoinPool_Should_GetTheSequencesInTheSequentialOrder() throws InterruptedException, ExecutionException {
+		Analyser analyser = new Analyser(new OperationList(), Priority.REGULAR);
+		Entry sequential = createAmbiguousEntry();
+		analyser.analyseEntry(sequential);
+		ForkJoinPool pool = new ForkJoinPool(8);
+		try {
+			for (int ii = 0; ii < 20; ii++) { // the branches are forked differently from run to run
+				Entry forked = createAmbiguousEntry();
+				pool.submit(() -> analyser.analyseEntry(forked)).get();
+				assertEquals(getSequences(sequential), getSequences(forked));
+			}
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * @return entries of every kind in {@link #OFFSETS}, one after the other, which have not been analysed
+	 */
+	static Entry[] createEntries() {
+		Entry[] entries = new Entry[10 * OFFSETS.length];
+		for (int ii = 0; ii < entries.length; ii++) {
+			long[] timeValues = new long[8];
+			for (int jj = 0; jj < 8; jj++) {
+				timeValues[jj] = TIME_VALUE + ii * 100 * SECOND + OFFSETS[ii % OFFSETS.length][jj] * SECOND;
+			}
+			entries[ii] = createEntry(ii, timeValues);
+		}
+		return entries;
+	}
+
+	/**
+	 * @return the operations without the copy operations
+	 */
+	static OperationList createOperationListWithoutCopying() {
+		OperationList operationList = new OperationList();
+		operationList.operations.removeIf(operation -> operation.toString().startsWith("Copy"));
+		return operationList;
+	}
+
+	/**
+	 * @param analyser the analyser to analyse the entries with
+	 * @param analysers the amount of threads to analyse the entries on
+	 * @param batchSize the amount of entries in a batch
+	 * @return the output of a pipeline that writes every entry of {@link #createEntries()}
+	 */
+	private static byte[] analyse(Analyser analyser, int analysers, int batchSize) throws IOException {
+		Entry[] entries = createEntries();
+		File output = File.createTempFile("output", ".txt");
+		try {
+			try (EntryWriter writer = new EntryWriter(output)) {
+				Pipeline pipeline = new Pipeline(analyser, analysers, 2 * analysers, batchSize, writer, Filter.ALL);
+				for (int ii = 0; ii < entries.length; ii += batchSize) {
+					pipeline.submit(entries, ii, Math.min(ii + batchSize, entries.length), ii);
+				}
+				pipeline.finish();
+			}
+			return Files.readAllBytes(output.toPath());
+		}
+		finally {
+			output.delete();
+		}
+	}
+
+	/**
+	 * Test method for {@link timeAnalyser.Pipeline#submit(timeAnalyser.Entry[], int, int, long)}.
+	 */
+	@Test
+	public void parallelAnalysis_Should_WriteTheSameBytesAsASingleThread() throws IOException {
+		byte[] single = analyse(new Analyser(new OperationList(), Priority.REGULAR), 1, Pipeline.DEFAULT_BATCH_SIZE);
+		assertTrue(single.length > 0);
+		for (int batchSize : new int[] {1, 3, 16}) {
+			assertArrayEquals(single, analyse(new Analyser(new OperationList(), Priority.REGULAR), 8, batchSize));
+		}
+	}
+
+	/**
+	 * Test method for {@link timeAnalyser.Analyser#Analyser(timeAnalyser.OperationList, timeAnalyser.Priority)}.
+	 */
+	@Test
+	public void runsInOneProcess_Should_EachWriteTheirOwnOutput() throws IOException, InterruptedException, ExecutionException {
+		byte[] regular = analyse(new Analyser(new OperationList(), Priority.REGULAR), 1, Pipeline.DEFAULT_BATCH_SIZE);
+		byte[] withoutCopying = analyse(new Analyser(createOperationListWithoutCopying(), Priority.EQUAL), 1, Pipeline.DEFAULT_BATCH_SIZE);
+		assertFalse(Arrays.equals(regular, withoutCopying));
+		ExecutorService runs = Executors.newFixedThreadPool(2);
+		try {
+			for (int ii = 0; ii < 5; ii++) {
+				Future<byte[]> first = runs.submit(() -> analyse(new Analyser(new OperationList(), Priority.REGULAR), 4, 1));
+				Future<byte[]> second = runs.submit(() -> analyse(new Analyser(createOperationListWithoutCopying(), Priority.EQUAL), 4, 1));
+				assertArrayEquals(regular, first.get());
+				assertArrayEquals(withoutCopying, second.get());
+			}
+		}
+		finally {
+			runs.shutdown();
+		}
+	}
+
+}
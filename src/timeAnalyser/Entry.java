@@ -14,11 +14,12 @@ import java.util.ArrayList;
 public class Entry {
 
 	private boolean signature;
-	private int indexNTFS;
+	private long indexNTFS;
 	private int sequenceNumberNTFS;
 	ArrayList<Sequence> sequences = new ArrayList<Sequence>();
+	private String truncation; // the limit at which the analysis of the entry was cut off, null if it was analysed completely
 	
-	public Entry(int indexNTFS, boolean signature) {
+	public Entry(long indexNTFS, boolean signature) {
 		this.indexNTFS = indexNTFS;
 		this.signature = signature;
 	}
@@ -39,9 +40,9 @@ public class Entry {
 	}
 
 	/**
-	 * @return the index number
+	 * @return the index number, which is the record number of the entry in the MFT
 	 */
-	public int getNTFSIndex() {
+	public long getNTFSIndex() {
 		return indexNTFS;
 	}
 	
@@ -78,8 +79,36 @@ public class Entry {
 		sequences.add(sequence);
 	}
 	
+	/**
+	 * @return if the entry has meta-data, which is not the case for entries that were filtered out while reading
+	 */
+	public boolean hasMetadata() {
+		return !sequences.isEmpty();
+	}
+	
+	/**
+	 * @param limit the limit at which the analysis of the entry was cut off
+	 */
+	void setTruncation(String limit) {
+		truncation = limit;
+	}
+	
+	/**
+	 * @return the limit at which the analysis of the entry was cut off, null if it was analysed completely
+	 */
+	String getTruncation() {
+		return truncation;
+	}
+	
+	/**
+	 * @return if the analysis of the entry was cut off at a limit, which leaves some of its sequences incomplete or out
+	 */
+	public boolean isTruncated() {
+		return truncation != null;
+	}
+	
 	public boolean hasSIAndFN() {
-		return sequences.get(0).getMetadata(0).hasSIAndFN();
+		return hasMetadata() && sequences.get(0).getMetadata(0).hasSIAndFN();
 	}
 	
 	public String toString() {
@@ -92,6 +121,9 @@ public class Entry {
 				entry += indexNTFS + " " + sequence + System.lineSeparator();
 			}
 		}
+		if (truncation != null) {
+			entry += indexNTFS + " (Analysis truncated at " + truncation + ")";
+		}
 		return entry.trim();
 	}
 	
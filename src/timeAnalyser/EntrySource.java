@@ -0,0 +1,165 @@
+package timeAnalyser;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ *
+ */
+
+/**
+ * Reads and parses a range of entries from the MFT one entry at a time, without holding more than one window of the MFT in memory.
+ * Entries are numbered with long record numbers, so MFTs with over 2^31 entries can be read as well.
+ * The window is either mapped into memory or read into a reused buffer with positional reads, depending on the MFTReader.
+ * MFTs on a volume image are always read with positional reads, as a window may span several extents of the MFT.
+ * Compressed MFTs are read from start to end a block at a time as they are inflated, their end is only known once the last block has been inflated.
+ * @author Jelle Bouma
+ *
+ */
+public class EntrySource implements Iterator<Entry>, Closeable {
+
+	static final int READ_BLOCK_SIZE = 1 << 20; // upper bound to the amount of bytes read at once when the MFT is not mapped, 1 MiB
+
+	private final MFTReader reader;
+	private final FileChannel channel;
+	private final int entrySize;
+	private long end;
+	private long next;
+	private ByteBuffer window;
+	private long windowFirst;
+	private int windowCount = 0;
+	private final EntryView view;
+	private final GzipBlockReader blocks; // inflates the MFT when it is compressed, otherwise null
+
+	/**
+	 * Constructs an entry source for the entries of the MFT from first (inclusive) to end (exclusive).
+	 * @param reader the MFTReader which determines how the MFT is read and parsed
+	 * @param first the record number of the first entry to read
+	 * @param end the record number after the last entry to read, or Long.MAX_VALUE to read until the end of the MFT
+	 * @throws IOException
+	 */
+	EntrySource(MFTReader reader, long first, long end) throws IOException {
+		this.reader = reader;
+		this.entrySize = reader.entrySize;
+		this.next = first;
+		this.end = end;
+		this.windowFirst = first;
+		view = new EntryView(entrySize);
+		if (reader.compressed) {
+			if (first != 0) {
+				throw new IllegalArgumentException("A compressed MFT can only be read from its first entry.");
+			}
+			channel = null;
+			blocks = new GzipBlockReader(reader.mft, entrySize);
+		}
+		else {
+			channel = FileChannel.open(reader.mft.toPath(), StandardOpenOption.READ);
+			blocks = null;
+		}
+	}
+
+	/**
+	 * Checks if there is a next entry, which for a compressed MFT may wait until the next block has been inflated.
+	 * @throws UncheckedIOException if the MFT could not be read
+	 */
+	@Override
+	public boolean hasNext() {
+		if (blocks != null && next < end && next >= windowFirst + windowCount) {
+			try {
+				fillWindow();
+			}
+			catch (IOException ioEx) {
+				throw new UncheckedIOException(ioEx);
+			}
+		}
+		return next < end;
+	}
+
+	/**
+	 * @return the record number of the entry that will be returned by the next call to next()
+	 */
+	long nextIndex() {
+		return next;
+	}
+
+	/**
+	 * Parses the next entry, reading the next window of the MFT first if the current window is exhausted.
+	 * @return the next entry
+	 * @throws UncheckedIOException if the MFT could not be read
+	 */
+	@Override
+	public Entry next() {
+		return reader.toEntry(nextView());
+	}
+
+	/**
+	 * Moves to the next entry without parsing it, reading the next window of the MFT first if the current window is exhausted.
+	 * The returned view is reused for every entry of this source, so it is only valid until the next call to next() or nextView().
+	 * @return a view on the next entry
+	 * @throws UncheckedIOException if the MFT could not be read
+	 */
+	EntryView nextView() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		if (next >= windowFirst + windowCount) {
+			try {
+				fillWindow();
+			}
+			catch (IOException ioEx) {
+				throw new UncheckedIOException(ioEx);
+			}
+		}
+		view.wrap(window, (int) (next - windowFirst) * entrySize, next);
+		next++;
+		return view;
+	}
+
+	/**
+	 * Reads the window of whole entries starting at the next entry.
+	 * @throws IOException
+	 */
+	private void fillWindow() throws IOException {
+		long position = next * entrySize;
+		windowFirst = next;
+		if (blocks != null) {
+			window = blocks.take();
+			if (window == null) { // the end of the compressed MFT
+				windowCount = 0;
+				end = next;
+				return;
+			}
+			windowCount = (int) Math.min(window.limit() / entrySize, end - next);
+		}
+		else if (reader.memoryMapped && reader.volume == null) {
+			windowCount = (int) Math.min(Math.max(1, MFTReader.MAPPING_WINDOW_SIZE / entrySize), end - next);
+			window = channel.map(FileChannel.MapMode.READ_ONLY, position, (long) windowCount * entrySize);
+		}
+		else {
+			windowCount = (int) Math.min(Math.max(1, READ_BLOCK_SIZE / entrySize), end - next);
+			if (window == null || window.capacity() < windowCount * entrySize) {
+				window = ByteBuffer.allocate(windowCount * entrySize);
+			}
+			reader.readEntries(channel, window, next, windowCount);
+		}
+		window.order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (blocks != null) {
+			blocks.close();
+		}
+		else {
+			channel.close();
+		}
+	}
+
+}
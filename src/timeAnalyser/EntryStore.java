@@ -0,0 +1,313 @@
+package timeAnalyser;
+
+import java.util.Arrays;
+
+/**
+ *
+ */
+
+/**
+ * The parsed entries of an MFT, held column by column in primitive arrays instead of as an Entry object per entry.
+ * Every position holds the flags, index, sequence number, parent directory, file name id and eight time-stamps of one entry,
+ * which takes about a hundred bytes per entry where an Entry with its sequence, meta-data and time-stamps takes several hundred before it is analysed.
+ * File names are kept once in the name pool of the run the store belongs to, every position holds the id of its name.
+ * Entry objects are only made when an entry is analysed, by getEntry, so no more of them are in memory than are being analysed and written.
+ * Different positions may be set by different threads at once.
+ * @author Jelle Bouma
+ *
+ */
+public class EntryStore {
+
+	static final byte READ = 1; // an entry has been read into the position
+	static final byte SIGNATURE_INTACT = 1 << 1;
+	static final byte HAS_METADATA = 1 << 2;
+	static final byte DIRECTORY = 1 << 3;
+	static final byte DELETED = 1 << 4;
+	static final byte HAS_SI = 1 << 5;
+	static final byte HAS_FN = 1 << 6;
+
+	private int size;
+	private byte[] flags;
+	private long[] indexes; // the index of the entry at every position, null if every entry is at the position of its index
+	private short[] sequenceNumbers;
+	private long[] parents;
+	private int[] nameIDs;
+	private final NamePool names; // the file names of the entries, which are referred to by id
+	private long[][] timestamps = new long[8][]; // a column for every time-stamp, in the order $SI.C, $SI.W, $SI.E, $SI.A, $FN.C, $FN.W, $FN.E, $FN.A
+	private PathTable paths; // the full paths of the entries, null if they are not needed
+
+	/**
+	 * Constructs an empty store with a name pool of its own.
+	 * @param capacity the amount of positions to allocate, the store grows when a position beyond them is set
+	 * @param indexed whether the entries can be at other positions than their index, otherwise the index of every entry is its position
+	 */
+	public EntryStore(int capacity, boolean indexed) {
+		this(capacity, indexed, new NamePool());
+	}
+
+	/**
+	 * Constructs an empty store.
+	 * @param capacity the amount of positions to allocate, the store grows when a position beyond them is set
+	 * @param indexed whether the entries can be at other positions than their index, otherwise the index of every entry is its position
+	 * @param names the name pool of the run, which holds the file names of the entries
+	 */
+	EntryStore(int capacity, boolean indexed, NamePool names) {
+		this.names = names;
+		flags = new byte[capacity];
+		indexes = indexed ? new long[capacity] : null;
+		sequenceNumbers = new short[capacity];
+		parents = new long[capacity];
+		nameIDs = new int[capacity];
+		for (int ii = 0; ii < timestamps.length; ii++) {
+			timestamps[ii] = new long[capacity];
+		}
+		size = capacity;
+	}
+
+	/**
+	 * @return the amount of positions in the store
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Grows the store to hold at least the specified amount of positions, growing every column by half so that a store filled one entry at a time is copied only a few times.
+	 * This should not be called while other threads set positions.
+	 * @param capacity the amount of positions the store should hold
+	 */
+	void ensureSize(int capacity) {
+		if (capacity <= flags.length) {
+			size = Math.max(size, capacity);
+			return;
+		}
+		int grown = (int) Math.min(MFTReader.MAX_ENTRIES_IN_ARRAY, Math.max(capacity, flags.length + (flags.length >> 1) + 16));
+		flags = Arrays.copyOf(flags, grown);
+		if (indexes != null) {
+			indexes = Arrays.copyOf(indexes, grown);
+		}
+		sequenceNumbers = Arrays.copyOf(sequenceNumbers, grown);
+		parents = Arrays.copyOf(parents, grown);
+		nameIDs = Arrays.copyOf(nameIDs, grown);
+		for (int ii = 0; ii < timestamps.length; ii++) {
+			timestamps[ii] = Arrays.copyOf(timestamps[ii], grown);
+		}
+		size = capacity;
+	}
+
+	/**
+	 * Sets a read entry, without meta-data.
+	 * @param position the position of the entry
+	 * @param index the index of the entry, which should be its position unless the store is indexed
+	 * @param signatureIntact if the signature of the entry indicates it is intact ("FILE")
+	 * @param sequenceNumber the sequence number
+	 */
+	public void setEntry(int position, long index, boolean signatureIntact, short sequenceNumber) {
+		if (indexes != null) {
+			indexes[position] = index;
+		}
+		sequenceNumbers[position] = sequenceNumber;
+		flags[position] = signatureIntact ? READ | SIGNATURE_INTACT : READ;
+	}
+
+	/**
+	 * Gives a read entry meta-data, without a name or time-stamps.
+	 * @param position the position of the entry
+	 * @param isDirectory if the meta-data describes a directory
+	 * @param isDeleted if the meta-data is marked as deleted
+	 */
+	public void setMetadata(int position, boolean isDirectory, boolean isDeleted) {
+		parents[position] = FileMetadata.ROOT_INDEX;
+		nameIDs[position] = NamePool.EMPTY;
+		flags[position] |= HAS_METADATA | (isDirectory ? DIRECTORY : 0) | (isDeleted ? DELETED : 0);
+	}
+
+	/**
+	 * @param position the position of an entry with meta-data
+	 * @param parentIndex the record number of the parent directory
+	 * @param name the file name
+	 */
+	public void setName(int position, long parentIndex, String name) {
+		setNameID(position, parentIndex, names.intern(name));
+	}
+
+	/**
+	 * @param position the position of an entry with meta-data
+	 * @param parentIndex the record number of the parent directory
+	 * @param nameID the id of the file name in the name pool of the store
+	 */
+	void setNameID(int position, long parentIndex, int nameID) {
+		parents[position] = parentIndex;
+		nameIDs[position] = nameID;
+	}
+
+	/**
+	 * @param position the position of an entry with meta-data
+	 * @param timestamp which $SI time-stamp to set: 0 for C, 1 for W, 2 for E and 3 for A
+	 * @param timeValue the unsigned amount of tenth microseconds from 1601-01-01 0:0:0
+	 */
+	public void setSI(int position, int timestamp, long timeValue) {
+		timestamps[timestamp][position] = timeValue;
+		flags[position] |= HAS_SI;
+	}
+
+	/**
+	 * @param position the position of an entry with meta-data
+	 * @param timestamp which $FN time-stamp to set: 0 for C, 1 for W, 2 for E and 3 for A
+	 * @param timeValue the unsigned amount of tenth microseconds from 1601-01-01 0:0:0
+	 */
+	public void setFN(int position, int timestamp, long timeValue) {
+		timestamps[timestamp + 4][position] = timeValue;
+		flags[position] |= HAS_FN;
+	}
+
+	/**
+	 * @param position a position
+	 * @return if an entry has been read into the position
+	 */
+	public boolean isRead(int position) {
+		return (flags[position] & READ) != 0;
+	}
+
+	/**
+	 * @param position the position of a read entry
+	 * @return the index number, which is the record number of the entry in the MFT
+	 */
+	public long getNTFSIndex(int position) {
+		return indexes == null ? position : indexes[position];
+	}
+
+	/**
+	 * @param position the position of a read entry
+	 * @return the sequence number
+	 */
+	public int getNTFSSequenceNumber(int position) {
+		return sequenceNumbers[position];
+	}
+
+	/**
+	 * @param position the position of a read entry
+	 * @return if the signature of the entry indicates it is intact ("FILE")
+	 */
+	public boolean signatureIntact(int position) {
+		return (flags[position] & SIGNATURE_INTACT) != 0;
+	}
+
+	/**
+	 * @param position a position
+	 * @return if the entry at the position has meta-data, which is not the case for entries that were filtered out while reading
+	 */
+	public boolean hasMetadata(int position) {
+		return (flags[position] & HAS_METADATA) != 0;
+	}
+
+	/**
+	 * @param position the position of an entry with meta-data
+	 * @return if the meta-data describes a directory
+	 */
+	public boolean isDirectory(int position) {
+		return (flags[position] & DIRECTORY) != 0;
+	}
+
+	/**
+	 * @param position the position of an entry with meta-data
+	 * @return if the meta-data is marked as deleted
+	 */
+	public boolean isDeleted(int position) {
+		return (flags[position] & DELETED) != 0;
+	}
+
+	/**
+	 * @param position a position
+	 * @return if the entry at the position has both $SI and $FN time-stamps
+	 */
+	public boolean hasSIAndFN(int position) {
+		return (flags[position] & (HAS_SI | HAS_FN)) == (HAS_SI | HAS_FN);
+	}
+
+	/**
+	 * @param position the position of an entry with meta-data
+	 * @return the record number of the parent directory
+	 */
+	public long getParentID(int position) {
+		return parents[position];
+	}
+
+	/**
+	 * @param position the position of an entry with meta-data
+	 * @return the file name
+	 */
+	public String getName(int position) {
+		return names.getName(nameIDs[position]);
+	}
+
+	/**
+	 * @param position the position of an entry with meta-data
+	 * @param timestamp which time-stamp: 0 to 3 for $SI.C, $SI.W, $SI.E and $SI.A, 4 to 7 for $FN.C, $FN.W, $FN.E and $FN.A
+	 * @return the unsigned amount of tenth microseconds from 1601-01-01 0:0:0
+	 */
+	public long getTimestamp(int position, int timestamp) {
+		return timestamps[timestamp][position];
+	}
+
+	/**
+	 * @param position the position of an entry with meta-data
+	 * @return the id of the file name in the name pool of the store
+	 */
+	int getNameID(int position) {
+		return nameIDs[position];
+	}
+
+	/**
+	 * @return the name pool holding the file names of the entries
+	 */
+	NamePool getNamePool() {
+		return names;
+	}
+
+	/**
+	 * @param paths the full paths of the entries, which are given to the entries that are not deleted and have both $SI and $FN time-stamps
+	 */
+	void setPaths(PathTable paths) {
+		this.paths = paths;
+	}
+
+	/**
+	 * Makes an Entry of the entry at a position, which can be analysed.
+	 * @param position a position
+	 * @return a new Entry holding the entry at the position, or null if no entry has been read into the position
+	 */
+	public Entry getEntry(int position) {
+		if (!isRead(position)) {
+			return null;
+		}
+		Entry entry = new Entry(getNTFSIndex(position), signatureIntact(position));
+		if (!signatureIntact(position)) {
+			return entry;
+		}
+		entry.setNTFSSequenceNumber(getNTFSSequenceNumber(position));
+		if (!hasMetadata(position)) {
+			return entry;
+		}
+		FileMetadata metadata = new FileMetadata();
+		metadata.setDirectory(isDirectory(position));
+		metadata.setDeleted(isDeleted(position));
+		metadata.setParentID(parents[position]);
+		metadata.setName(names, nameIDs[position]);
+		if (paths != null && !isDeleted(position) && hasSIAndFN(position)) {
+			metadata.setPath(paths.getPath(position));
+		}
+		Timestamps timestamps = metadata.getTimestamps();
+		for (int ii = 0; ii < 4; ii++) {
+			if ((flags[position] & HAS_SI) != 0) {
+				timestamps.setSI(ii, this.timestamps[ii][position]);
+			}
+			if ((flags[position] & HAS_FN) != 0) {
+				timestamps.setFN(ii, this.timestamps[ii + 4][position]);
+			}
+		}
+		entry.setFileMetadata(metadata);
+		return entry;
+	}
+
+}
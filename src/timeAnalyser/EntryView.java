@@ -0,0 +1,260 @@
+package timeAnalyser;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ *
+ */
+
+/**
+ * A flyweight view on the raw bytes of an MFT entry, for instance in a mapped window of the MFT.
+ * Nothing is decoded until it is asked for: the flags, parent reference, name and time-stamps are read from the bytes when they are accessed.
+ * A view is reused for many entries by wrapping it around the next entry, it is not thread-safe.
+ * @author Jelle Bouma
+ *
+ */
+public class EntryView {
+
+	static final int FILE_SIGNATURE = 0x454C4946; // "FILE" read in little endian byte order
+	static final int STANDARD_INFORMATION = 0x00000010;
+	static final int FILE_NAME = 0x00000030;
+	static final int END_OF_ATTRIBUTES = 0xFFFFFFFF;
+
+	private final int entrySize;
+	private ByteBuffer buffer;
+	private int base;
+	private long index;
+	private boolean attributesLocated;
+	private int standardInformation; // offset in the buffer to the content of the last $STANDARD_INFORMATION attribute, -1 if there is none
+	private int[] fileNames = new int[4]; // offsets in the buffer to the content of the $FILE_NAME attributes
+	private int[] fileNameEnds = new int[4]; // offsets in the buffer to the end of the $FILE_NAME attributes
+	private int fileNameCount;
+	private char[] nameChars = new char[256];
+	private int nameStart; // the trimmed name decoded last, from nameStart to nameEnd in nameChars
+	private int nameEnd;
+
+	/**
+	 * @param entrySize the size of an entry in the MFT
+	 */
+	public EntryView(int entrySize) {
+		this.entrySize = entrySize;
+	}
+
+	/**
+	 * Points this view at an entry.
+	 * @param buffer little endian buffer holding the MFT entry
+	 * @param base the offset of the MFT entry in the buffer
+	 * @param index the record number of the entry
+	 * @return this view
+	 */
+	public EntryView wrap(ByteBuffer buffer, int base, long index) {
+		this.buffer = buffer;
+		this.base = base;
+		this.index = index;
+		attributesLocated = false;
+		return this;
+	}
+
+	/**
+	 * @return the record number of the entry
+	 */
+	public long getIndex() {
+		return index;
+	}
+
+	/**
+	 * @return if the signature of the entry indicates it is intact ("FILE")
+	 */
+	public boolean signatureIntact() {
+		return buffer.getInt(base) == FILE_SIGNATURE;
+	}
+
+	/**
+	 * @return the sequence number of the entry
+	 */
+	public short getNTFSSequenceNumber() {
+		return buffer.getShort(base + 0x10);
+	}
+
+	/**
+	 * @return the flags which determine if a file is deleted and/or a directory
+	 */
+	public short getFlags() {
+		return buffer.getShort(base + 0x16);
+	}
+
+	/**
+	 * @return if the entry describes a directory
+	 */
+	public boolean isDirectory() {
+		return getFlags() > 0x01;
+	}
+
+	/**
+	 * @return if the entry is marked as deleted (not in use)
+	 */
+	public boolean isDeleted() {
+		return getFlags() % 0x02 == 0x00;
+	}
+
+	/**
+	 * @return if the entry has a $STANDARD_INFORMATION attribute
+	 */
+	public boolean hasSI() {
+		locateAttributes();
+		return standardInformation != -1;
+	}
+
+	/**
+	 * @param timestamp 0 to 3 for the creation, modification, entry modification and access time-stamp
+	 * @return the raw value of the $STANDARD_INFORMATION time-stamp
+	 */
+	public long getSITimestamp(int timestamp) {
+		locateAttributes();
+		return buffer.getLong(standardInformation + timestamp * 8);
+	}
+
+	/**
+	 * @return the amount of $FILE_NAME attributes of the entry
+	 */
+	public int getFileNameCount() {
+		locateAttributes();
+		return fileNameCount;
+	}
+
+	/**
+	 * @param fileName which $FILE_NAME attribute, in the order they appear in the entry
+	 * @param timestamp 0 to 3 for the creation, modification, entry modification and access time-stamp
+	 * @return the raw value of the $FILE_NAME time-stamp
+	 */
+	public long getFNTimestamp(int fileName, int timestamp) {
+		locateAttributes();
+		return buffer.getLong(fileNames[fileName] + 8 + timestamp * 8);
+	}
+
+	/**
+	 * @param fileName which $FILE_NAME attribute, in the order they appear in the entry
+	 * @return the record number of the parent directory in the $FILE_NAME attribute
+	 */
+	public long getParentIndex(int fileName) {
+		locateAttributes();
+		return buffer.getLong(fileNames[fileName]) & 0x0000FFFFFFFFFFFFL; // the record number is held by the lower 48 bits of the file reference
+	}
+
+	/**
+	 * @param fileName which $FILE_NAME attribute, in the order they appear in the entry
+	 * @return the file name in the $FILE_NAME attribute
+	 */
+	public String getName(int fileName) {
+		locateAttributes();
+		int from = fileNames[fileName] + 0x42;
+		int to = fileNameEnds[fileName];
+		if (!decodeName(from, to)) {
+			return decodeMalformedName(from, to);
+		}
+		return new String(nameChars, nameStart, nameEnd - nameStart);
+	}
+
+	/**
+	 * Adds the file name in a $FILE_NAME attribute to a name pool, without making a String of it unless the name has malformed characters.
+	 * @param fileName which $FILE_NAME attribute, in the order they appear in the entry
+	 * @param pool the pool to add the name to
+	 * @return the id of the name in the pool
+	 */
+	public int getNameID(int fileName, NamePool pool) {
+		locateAttributes();
+		int from = fileNames[fileName] + 0x42;
+		int to = fileNameEnds[fileName];
+		if (!decodeName(from, to)) {
+			return pool.intern(decodeMalformedName(from, to));
+		}
+		return pool.intern(nameChars, nameStart, nameEnd - nameStart);
+	}
+
+	/**
+	 * Finds the offsets of the $STANDARD_INFORMATION and $FILE_NAME attributes, once per entry.
+	 */
+	private void locateAttributes() {
+		if (attributesLocated) {
+			return;
+		}
+		attributesLocated = true;
+		standardInformation = -1;
+		fileNameCount = 0;
+		int attributeOffset = buffer.getShort(base + 0x14);
+		while (attributeOffset < entrySize && attributeOffset >= 0) {
+			int attributeType = buffer.getInt(base + attributeOffset);
+			if (attributeType == END_OF_ATTRIBUTES) {
+				break;
+			}
+			int attributeSize = buffer.getInt(base + attributeOffset + 0x4);
+			int contentOffset = attributeOffset + buffer.getShort(base + attributeOffset + 0x14);
+			attributeOffset += attributeSize; // find next attribute
+			if (attributeOffset > entrySize || attributeSize <= 0) {
+				break;
+			}
+			if (attributeType == STANDARD_INFORMATION) {
+				standardInformation = base + contentOffset;
+			}
+			if (attributeType == FILE_NAME) {
+				if (fileNameCount == fileNames.length) {
+					fileNames = Arrays.copyOf(fileNames, fileNameCount * 2);
+					fileNameEnds = Arrays.copyOf(fileNameEnds, fileNameCount * 2);
+				}
+				fileNames[fileNameCount] = base + contentOffset;
+				fileNameEnds[fileNameCount] = base + attributeOffset;
+				fileNameCount++;
+			}
+		}
+	}
+
+	/**
+	 * Decodes a UTF-16LE file name and trims it, like {@code new String(bytes, "UTF-16LE").trim()} would, into nameChars from nameStart to nameEnd.
+	 * The characters are read straight from the buffer into a reused array, only names with surrogates or an odd amount of bytes take the slower path through the charset decoder.
+	 * @param from offset in the buffer of the first byte of the name
+	 * @param to offset in the buffer after the last byte of the name
+	 * @return false if the name has surrogates or an odd amount of bytes, in which case it should be decoded by decodeMalformedName
+	 */
+	private boolean decodeName(int from, int to) {
+		nameStart = 0;
+		nameEnd = 0;
+		if (to <= from) {
+			return true;
+		}
+		int length = (to - from) / 2;
+		if (nameChars.length < length) {
+			nameChars = new char[length];
+		}
+		boolean decodable = (to - from) % 2 == 0;
+		for (int ii = 0; ii < length; ii++) {
+			nameChars[ii] = buffer.getChar(from + ii * 2);
+			decodable &= !Character.isSurrogate(nameChars[ii]);
+		}
+		if (!decodable) {
+			return false;
+		}
+		nameEnd = length;
+		while (nameStart < nameEnd && nameChars[nameStart] <= ' ') {
+			nameStart++;
+		}
+		while (nameEnd > nameStart && nameChars[nameEnd - 1] <= ' ') {
+			nameEnd--;
+		}
+		return true;
+	}
+
+	/**
+	 * Decodes a file name with surrogates or an odd amount of bytes through the charset decoder, which replaces malformed input, and trims it.
+	 * @param from offset in the buffer of the first byte of the name
+	 * @param to offset in the buffer after the last byte of the name
+	 * @return the trimmed file name
+	 */
+	private String decodeMalformedName(int from, int to) {
+		ByteBuffer nameBytes = buffer.duplicate();
+		nameBytes.limit(to).position(from);
+		return StandardCharsets.UTF_16LE.decode(nameBytes).toString().trim();
+	}
+
+}
@@ -0,0 +1,386 @@
+package timeAnalyser;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.Month;
+import java.util.Arrays;
+
+/**
+ *
+ */
+
+/**
+ * Writes analysed entries to the output file in the text of Entry.toString, one entry after the other, without making a String of every entry, sequence, time match and time-stamp.
+ * The text is encoded straight into a reused byte array, which is written to the file through a file channel once it is full.
+ * Time-stamps are rendered by working out the calendar date from their raw value, and the date and time up to the second are kept for the last few thousand seconds that were rendered,
+ * as the time-stamps of a volume are mostly close together.
+ * The text is encoded in the default charset, as a PrintWriter on the file would. Charsets in which the characters up to 127 are not single bytes of their own,
+ * and default locales which render numbers in other digits, are written through Entry.toString and a writer instead.
+ * An entry writer is used by a single thread.
+ * @author Jelle Bouma
+ *
+ */
+public class EntryWriter implements Closeable {
+
+	static final int BUFFER_SIZE = 1 << 20; // the amount of bytes after which the buffer is written to the file, 1 MiB
+	static final int SECONDS_CACHED = 4096; // the amount of seconds of which the rendered date and time are kept
+	static final long TICKS_PER_SECOND = 10000000L; // tenth microseconds
+	static final long NTFS_EPOCH_DAY = -134774; // the day of 1601-01-01, counted from 1970-01-01
+	static final byte[][] MONTHS = new byte[12][];
+	static final byte[] ZONE = Timestamp.NTFS_EPOCH.getZone().toString().getBytes(StandardCharsets.US_ASCII);
+	static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+
+	static {
+		for (int ii = 0; ii < MONTHS.length; ii++) {
+			MONTHS[ii] = Month.of(ii + 1).toString().getBytes(StandardCharsets.US_ASCII);
+		}
+	}
+
+	private final FileChannel channel;
+	private final Charset charset;
+	private final Writer fallback; // the writer of the entries if they can not be encoded into the buffer, otherwise null
+	private byte[] buffer = new byte[BUFFER_SIZE];
+	private int position = 0;
+	private final long[] cachedSeconds = new long[SECONDS_CACHED]; // the second of every slot of the cache, -1 for an empty slot
+	private final byte[][] cachedDates = new byte[SECONDS_CACHED][]; // the date and time up to the second of every slot of the cache, followed by a dot
+
+	/**
+	 * Creates or truncates the output file.
+	 * @param output the output file
+	 * @throws IOException
+	 */
+	public EntryWriter(File output) throws IOException {
+		this(output, Charset.defaultCharset(), !isAsciiCompatible(Charset.defaultCharset()) || !String.format("%07d", 1234567).equals("1234567"));
+	}
+
+	/**
+	 * Creates or truncates the output file.
+	 * @param output the output file
+	 * @param charset the charset to encode the text in, in which the characters up to 127 should be single bytes of their own unless the entries are written through a writer
+	 * @param throughWriter if the entries are written through Entry.toString and a writer instead of being encoded into the buffer
+	 * @throws IOException
+	 */
+	EntryWriter(File output, Charset charset, boolean throughWriter) throws IOException {
+		channel = FileChannel.open(output.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		this.charset = charset;
+		fallback = throughWriter ? new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(channel), charset)) : null;
+		Arrays.fill(cachedSeconds, -1);
+	}
+
+	/**
+	 * @param charset a charset
+	 * @return if the charset encodes the characters up to 127 as single bytes of the same value, and no other character as a byte up to 127
+	 */
+	static boolean isAsciiCompatible(Charset charset) {
+		if (charset.equals(StandardCharsets.UTF_8)) {
+			return true;
+		}
+		if (!charset.canEncode()) {
+			return false;
+		}
+		CharsetEncoder encoder = charset.newEncoder();
+		if (encoder.maxBytesPerChar() != 1) {
+			return false;
+		}
+		char[] ascii = new char[128];
+		for (int ii = 0; ii < ascii.length; ii++) {
+			ascii[ii] = (char) ii;
+		}
+		byte[] encoded = new String(ascii).getBytes(charset);
+		for (int ii = 0; ii < ascii.length; ii++) {
+			if (encoded.length != ascii.length || encoded[ii] != ii) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Writes an entry followed by a line separator, exactly like printing the entry on a PrintWriter would.
+	 * @param entry an analysed entry
+	 * @throws IOException
+	 */
+	public void write(Entry entry) throws IOException {
+		if (fallback != null) {
+			fallback.write(entry.toString());
+			fallback.write(System.lineSeparator());
+			return;
+		}
+		int start = position;
+		long index = entry.getNTFSIndex();
+		for (Sequence sequence : entry.sequences) {
+			if (!sequence.isSplitting()) {
+				appendNumber(index);
+				append((byte) ' ');
+			}
+			appendSequence(sequence);
+			append(LINE_SEPARATOR);
+		}
+		if (entry.isTruncated()) {
+			appendNumber(index);
+			append(" (Analysis truncated at ");
+			append(entry.getTruncation());
+			append((byte) ')');
+		}
+		trim(start);
+		append(LINE_SEPARATOR);
+		endEntry();
+	}
+
+	/**
+	 * Writes the buffer to the file once it is full, after an entry has been appended to it.
+	 * @throws IOException
+	 */
+	void endEntry() throws IOException {
+		if (position >= BUFFER_SIZE) {
+			writeBuffer();
+		}
+	}
+
+	/**
+	 * Appends a sequence in the text of Sequence.toString.
+	 * @param sequence a sequence
+	 */
+	private void appendSequence(Sequence sequence) {
+		FileMetadata[] metadata = sequence.getAllMetadata();
+		if (metadata[0].hasPath()) {
+			append(metadata[0].getPath());
+			append((byte) ' ');
+		}
+		else if (metadata[0].hasName()) {
+			append(metadata[0].getName());
+			append((byte) ' ');
+		}
+		else {
+			append("no file name ");
+		}
+		if (metadata.length == 1) {
+			append(metadata[0].hasSIAndFN() ? "irregular time-stamps" : "no time-stamps");
+			return;
+		}
+		if (sequence.hasForgery()) {
+			append("irregular time-stamps: ");
+		}
+		TimeMatch[] matches = sequence.getTimeMatches();
+		for (int ii = 0; ii < matches.length; ii++) {
+			if (ii > 0) {
+				append(" <- ");
+			}
+			append((byte) '(');
+			appendTimeMatch(matches[ii]);
+			append((byte) ')');
+			switch (metadata[ii].onOtherVolume()) {
+				case 0:		append(" possibly on other volume");
+							break;
+				case 1:		append(" on other volume");
+							break;
+				default:
+			}
+		}
+	}
+
+	/**
+	 * Appends a time match in the text of TimeMatch.toString.
+	 * @param match a time match
+	 */
+	private void appendTimeMatch(TimeMatch match) {
+		if (!match.hasUpperBound()) {
+			append(match.isRange ? "After " : "At ");
+			appendTimestamp(match.lower.timeValue);
+		}
+		else {
+			append(match.isRange ? "Between " : "From ");
+			appendTimestamp(match.lower.timeValue);
+			append(match.isRange ? " and " : " to ");
+			appendTimestamp(match.upper.timeValue);
+		}
+		append(": ");
+		append(match.matchedOperations.get(0).toString());
+		for (int ii = 1; ii < match.matchedOperations.size(); ii++) {
+			append(" | ");
+			append(match.matchedOperations.get(ii).toString());
+		}
+	}
+
+	/**
+	 * Appends a time-stamp in the text of Timestamp.toString.
+	 * @param timeValue the unsigned amount of tenth microseconds from 1601-01-01 0:0:0
+	 */
+	private void appendTimestamp(long timeValue) {
+		appendTime(timeValue);
+		append((byte) ' ');
+		append(ZONE);
+	}
+
+	/**
+	 * Appends the date and time of a time-stamp up to the tenth microsecond, the date and time up to the second as renderDate renders them.
+	 * @param timeValue the unsigned amount of tenth microseconds from 1601-01-01 0:0:0
+	 */
+	void appendTime(long timeValue) {
+		long second = Long.divideUnsigned(timeValue, TICKS_PER_SECOND);
+		int slot = (int) (second ^ (second >>> 12)) & (SECONDS_CACHED - 1);
+		if (cachedSeconds[slot] != second) {
+			cachedSeconds[slot] = second;
+			cachedDates[slot] = renderDate(second);
+		}
+		append(cachedDates[slot]);
+		int ticks = (int) Long.remainderUnsigned(timeValue, TICKS_PER_SECOND);
+		ensureCapacity(7);
+		for (int ii = 6; ii >= 0; ii--) {
+			buffer[position + ii] = (byte) ('0' + ticks % 10);
+			ticks /= 10;
+		}
+		position += 7;
+	}
+
+	/**
+	 * @param second the amount of seconds from 1601-01-01 0:0:0
+	 * @return the year, month, day, hour, minute and second as Timestamp.toString renders them, followed by a dot
+	 */
+	byte[] renderDate(long second) {
+		long[] date = toCivil(second);
+		String rendered = date[0] + "-" + new String(MONTHS[(int) date[1] - 1], StandardCharsets.US_ASCII) + "-" + date[2] + " "
+				+ date[3] + ":" + date[4] + ":" + date[5] + ".";
+		return rendered.getBytes(StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * Works out the date and time of a second, by the civil calendar algorithm of Howard Hinnant which works out the year, month and day from a count of days.
+	 * @param second the amount of seconds from 1601-01-01 0:0:0
+	 * @return the year, month (1 for January), day of the month, hour, minute and second
+	 */
+	static long[] toCivil(long second) {
+		long day = second / 86400 + NTFS_EPOCH_DAY + 719468; // counted from 0000-03-01, so that the leap day is the last day of a year
+		int secondOfDay = (int) (second % 86400);
+		long era = Math.floorDiv(day, 146097);
+		int dayOfEra = (int) (day - era * 146097);
+		int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+		int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+		int shiftedMonth = (5 * dayOfYear + 2) / 153; // 0 for March
+		int dayOfMonth = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+		int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+		long year = era * 400 + yearOfEra + (month <= 2 ? 1 : 0);
+		return new long[] {year, month, dayOfMonth, secondOfDay / 3600, secondOfDay / 60 % 60, secondOfDay % 60};
+	}
+
+	/**
+	 * Removes the characters up to a space from the start and end of the text appended from a position, like String.trim.
+	 * The characters up to a space are single bytes in the charsets that are encoded into the buffer, and are not part of the encoding of any other character.
+	 * @param start the position of the start of the text
+	 */
+	private void trim(int start) {
+		int end = position;
+		while (end > start && (buffer[end - 1] & 0xFF) <= ' ') {
+			end--;
+		}
+		int first = start;
+		while (first < end && (buffer[first] & 0xFF) <= ' ') {
+			first++;
+		}
+		if (first > start) {
+			System.arraycopy(buffer, first, buffer, start, end - first);
+		}
+		position = start + end - first;
+	}
+
+	/**
+	 * @param text text, encoded in the charset of the writer
+	 */
+	void append(String text) {
+		int length = text.length();
+		ensureCapacity(length);
+		for (int ii = 0; ii < length; ii++) {
+			char character = text.charAt(ii);
+			if (character >= 0x80) { // only the characters up to 127 are encoded as they are
+				append(text.substring(ii).getBytes(charset));
+				return;
+			}
+			buffer[position++] = (byte) character;
+		}
+	}
+
+	void append(byte[] bytes) {
+		ensureCapacity(bytes.length);
+		System.arraycopy(bytes, 0, buffer, position, bytes.length);
+		position += bytes.length;
+	}
+
+	void append(byte character) {
+		ensureCapacity(1);
+		buffer[position++] = character;
+	}
+
+	/**
+	 * @param number a number, appended in decimal digits
+	 */
+	void appendNumber(long number) {
+		if (number < 0) {
+			append(Long.toString(number));
+			return;
+		}
+		int digits = 1;
+		for (long rest = number / 10; rest > 0; rest /= 10) {
+			digits++;
+		}
+		ensureCapacity(digits);
+		for (int ii = position + digits - 1; ii >= position; ii--) {
+			buffer[ii] = (byte) ('0' + number % 10);
+			number /= 10;
+		}
+		position += digits;
+	}
+
+	/**
+	 * Grows the buffer if the bytes do not fit, which only happens for an entry with more text than the buffer holds, as the buffer is written to the file after every entry that fills it.
+	 * @param bytes the amount of bytes to append
+	 */
+	private void ensureCapacity(int bytes) {
+		if (position + bytes > buffer.length) {
+			buffer = Arrays.copyOf(buffer, Math.max(position + bytes, buffer.length * 2));
+		}
+	}
+
+	private void writeBuffer() throws IOException {
+		ByteBuffer written = ByteBuffer.wrap(buffer, 0, position);
+		while (written.hasRemaining()) {
+			channel.write(written);
+		}
+		position = 0;
+		if (buffer.length > BUFFER_SIZE) { // an entry with more text than the buffer holds has been written
+			buffer = new byte[BUFFER_SIZE];
+		}
+	}
+
+	/**
+	 * Writes the entries that have been written to this writer to the file.
+	 * @throws IOException
+	 */
+	public void flush() throws IOException {
+		if (fallback != null) {
+			fallback.flush();
+		}
+		writeBuffer();
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+		}
+		finally {
+			channel.close();
+		}
+	}
+
+}
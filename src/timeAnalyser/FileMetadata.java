@@ -10,14 +10,17 @@ package timeAnalyser;
  */
 public class FileMetadata {
 	
+	static final long ROOT_INDEX = 5; // the record number of the root directory, the parent of files without a $FILE_NAME attribute
+	
 	private boolean isDirectory;
 	private boolean isDeleted;
 	private String fullPath = "";
-	private String name = "";
+	private NamePool names; // the name pool of the run the meta-data belongs to, null while the meta-data has no name
+	private int nameID = NamePool.EMPTY;
 	private Timestamps timestamps;
 	private int onOtherVolume = -1;
 	private boolean isSplitting = false;
-	private int parentIndex = 5;
+	private long parentIndex = ROOT_INDEX;
 	
 	public FileMetadata () {
 		timestamps = new Timestamps();
@@ -73,28 +76,54 @@ public class FileMetadata {
 	}
 	
 	public boolean hasName() {
-		return !name.equals("");
+		return nameID != NamePool.EMPTY;
 	}
 	
 	/**
 	 * @return the file name
 	 */
 	public String getName() {
-		return name;
+		return names == null ? "" : names.getName(nameID);
 	}
 
 	/**
+	 * Sets the file name, adding it to the name pool of the meta-data, or to a pool of its own if the meta-data has no pool yet.
 	 * @param name the file name to set
 	 */
 	public void setName(String name) {
-		this.name = name;
+		if (names == null) {
+			names = new NamePool();
+		}
+		nameID = names.intern(name);
 	}
 	
-	public void setParentID(int parentIndex) {
+	/**
+	 * @return the id of the file name in the name pool
+	 */
+	int getNameID() {
+		return nameID;
+	}
+	
+	/**
+	 * @param names the name pool holding the file name
+	 * @param nameID the id of the file name to set in the name pool
+	 */
+	void setName(NamePool names, int nameID) {
+		this.names = names;
+		this.nameID = nameID;
+	}
+	
+	/**
+	 * @param parentIndex the record number of the parent directory
+	 */
+	public void setParentID(long parentIndex) {
 		this.parentIndex = parentIndex;
 	}
 	
-	public int getParentID() {
+	/**
+	 * @return the record number of the parent directory
+	 */
+	public long getParentID() {
 		return parentIndex;
 	}
 	
@@ -114,7 +143,8 @@ public class FileMetadata {
 		FileMetadata clone = new FileMetadata();
 		clone.setDirectory(isDirectory);
 		clone.setDeleted(isDeleted);
-		clone.setName(name);
+		clone.names = names;
+		clone.nameID = nameID;
 		clone.timestamps = timestamps.clone();
 		return clone;
 	}
@@ -0,0 +1,157 @@
+package timeAnalyser;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.zip.GZIPInputStream;
+
+/**
+ *
+ */
+
+/**
+ * Inflates a gzip-compressed MFT on its own thread, handing blocks of whole entries to the parser through a bounded queue.
+ * The inflating thread runs ahead of the parser by at most QUEUED_BLOCKS blocks, which are reused once the parser is done with them, so inflating and parsing overlap without buffering the whole MFT.
+ * Files of several concatenated gzip members are read as one MFT. A partial entry at the end of the file is ignored, like it is at the end of an uncompressed MFT.
+ * @author Jelle Bouma
+ *
+ */
+public class GzipBlockReader implements Closeable {
+
+	static final int QUEUED_BLOCKS = 4; // the most inflated blocks waiting for the parser
+	static final int INPUT_BUFFER_SIZE = 1 << 16; // the size of the buffer of compressed bytes, 64 KiB
+	private static final ByteBuffer END = ByteBuffer.allocate(0); // queued after the last block
+
+	private final File file;
+	private final int blockSize;
+	private final ArrayBlockingQueue<ByteBuffer> inflated = new ArrayBlockingQueue<>(QUEUED_BLOCKS + 1);
+	private final ArrayBlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<>(QUEUED_BLOCKS + 1);
+	private final Thread inflater;
+	private volatile Throwable failure; // why the inflating thread ended before the end of the file, null if it did not
+	private ByteBuffer current; // the block the parser is working on, returned to the free blocks when the next block is taken
+	private boolean ended = false;
+
+	/**
+	 * Starts inflating a gzip-compressed MFT.
+	 * @param file the gzip-compressed MFT
+	 * @param entrySize the size of an entry of the MFT, every block holds a whole amount of entries
+	 */
+	public GzipBlockReader(File file, int entrySize) {
+		this.file = file;
+		blockSize = Math.max(1, EntrySource.READ_BLOCK_SIZE / entrySize) * entrySize;
+		for (int ii = 0; ii < QUEUED_BLOCKS + 1; ii++) { // one more block than can be queued, which the parser is working on
+			free.add(ByteBuffer.allocate(blockSize).order(ByteOrder.LITTLE_ENDIAN));
+		}
+		inflater = new Thread(() -> inflate(entrySize), "inflate " + file.getName());
+		inflater.setDaemon(true);
+		inflater.start();
+	}
+
+	/**
+	 * @param file a file
+	 * @return if the file starts with the magic number of gzip
+	 * @throws IOException
+	 */
+	public static boolean isGzip(File file) throws IOException {
+		try (InputStream input = new FileInputStream(file)) {
+			return input.read() == 0x1F && input.read() == 0x8B;
+		}
+	}
+
+	/**
+	 * Opens the inflated contents of the file, which is called on the inflating thread.
+	 * @return a stream of the inflated bytes of every member of the file
+	 * @throws IOException
+	 */
+	protected InputStream open() throws IOException {
+		return new GZIPInputStream(new FileInputStream(file), INPUT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Inflates the file into free blocks until the end of the file, queuing every block for the parser.
+	 * Whatever ends the inflating early, it is kept for the parser and the end is queued all the same, so the parser never waits for a block that will not come.
+	 * @param entrySize the size of an entry of the MFT
+	 */
+	private void inflate(int entrySize) {
+		try (InputStream input = open()) {
+			int read = 0;
+			while (read != -1) {
+				ByteBuffer block = free.take();
+				byte[] bytes = block.array();
+				int filled = 0;
+				while (filled < blockSize && (read = input.read(bytes, filled, blockSize - filled)) != -1) {
+					filled += read;
+				}
+				int whole = filled - filled % entrySize; // only the last block can end in a partial entry, which is ignored
+				if (whole > 0) {
+					block.clear().limit(whole);
+					inflated.put(block);
+				}
+			}
+		}
+		catch (InterruptedException interruptedEx) {
+			return; // closed before the end of the file
+		}
+		catch (Throwable throwable) { // such as a damaged deflate block, or a block too big for memory
+			failure = throwable;
+		}
+		try {
+			inflated.put(END);
+		}
+		catch (InterruptedException interruptedEx) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Takes the next block of inflated entries, waiting for the inflating thread if it has not been inflated yet.
+	 * The previous block is reused by the inflating thread, so it should no longer be used.
+	 * @return a little endian buffer holding a whole amount of entries up to its limit, or null after the last block
+	 * @throws IOException if the file could not be read or inflated, with the failure of the inflating thread as its cause if that was not an IOException
+	 */
+	public ByteBuffer take() throws IOException {
+		if (ended) {
+			return null;
+		}
+		if (current != null) {
+			free.add(current);
+			current = null;
+		}
+		try {
+			ByteBuffer block = inflated.take();
+			if (block == END) {
+				ended = true;
+				if (failure instanceof IOException) {
+					throw (IOException) failure;
+				}
+				if (failure instanceof Error) {
+					throw (Error) failure;
+				}
+				if (failure != null) {
+					throw new IOException("Failed to inflate " + file, failure);
+				}
+				return null;
+			}
+			current = block;
+			return block;
+		}
+		catch (InterruptedException interruptedEx) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while inflating " + file, interruptedEx);
+		}
+	}
+
+	/**
+	 * Stops the inflating thread.
+	 */
+	@Override
+	public void close() {
+		inflater.interrupt();
+	}
+
+}
@@ -0,0 +1,169 @@
+package timeAnalyser;
+
+import java.util.Arrays;
+
+/**
+ *
+ */
+
+/**
+ * A set of MFT entry indexes, stored as sorted runs of consecutive indexes.
+ * A run takes the same memory whether it holds one index or millions, which keeps large selections such as ``100-250000'' small.
+ * Runs are kept sorted, non-overlapping and non-adjacent, so every index is in at most one run.
+ * @author Jelle Bouma
+ *
+ */
+public class IndexRanges {
+
+	private static final String LIST_PATTERN = "\\d+(-\\d+)?(\\|\\d+(-\\d+)?)*";
+
+	private long[] starts = new long[8]; // first index of every run
+	private long[] ends = new long[8]; // index after the last index of every run
+	private int runCount = 0;
+
+	public IndexRanges() {
+	}
+
+	/**
+	 * @param list a list of indexes and ranges of indexes separated by ``|''
+	 * @return if the list is a list of indexes and ranges of indexes, such as ``7|100-250000|300000-310000''
+	 */
+	public static boolean isIndexList(String list) {
+		return list.matches(LIST_PATTERN);
+	}
+
+	/**
+	 * Parses a list of indexes and inclusive ranges of indexes separated by ``|'', such as ``7|100-250000|300000-310000''.
+	 * @param list the list to parse
+	 * @return the set of indexes in the list
+	 */
+	public static IndexRanges parse(String list) {
+		if (!isIndexList(list)) {
+			throw new IllegalArgumentException(list + " is not a list of indexes or ranges of indexes separated by |");
+		}
+		IndexRanges ranges = new IndexRanges();
+		for (String range : list.split("\\|")) {
+			int separator = range.indexOf('-');
+			try {
+				if (separator == -1) {
+					long index = Long.parseLong(range);
+					ranges.add(index, index + 1);
+				}
+				else {
+					long first = Long.parseLong(range.substring(0, separator));
+					long last = Long.parseLong(range.substring(separator + 1));
+					if (last < first) {
+						throw new IllegalArgumentException("The range " + range + " ends before it starts.");
+					}
+					ranges.add(first, last + 1);
+				}
+			}
+			catch (NumberFormatException numberEx) {
+				throw new IllegalArgumentException(range + " is not a valid index or range of indexes.");
+			}
+		}
+		return ranges;
+	}
+
+	/**
+	 * Adds the indexes from first (inclusive) to end (exclusive), merging them with overlapping or adjacent runs.
+	 * Adding in ascending order is amortised constant time, adding out of order moves the runs after the new run.
+	 * @param first the first index to add
+	 * @param end the index after the last index to add
+	 */
+	public void add(long first, long end) {
+		if (end <= first) {
+			return;
+		}
+		int run = Arrays.binarySearch(starts, 0, runCount, first);
+		if (run < 0) {
+			run = -run - 1;
+		}
+		if (run > 0 && ends[run - 1] >= first) { // merges with the run before it
+			run--;
+			first = starts[run];
+		}
+		int lastMerged = run;
+		while (lastMerged < runCount && starts[lastMerged] <= end) { // merges with the runs after it
+			end = Math.max(end, ends[lastMerged]);
+			lastMerged++;
+		}
+		int removed = lastMerged - run;
+		if (removed == 0) { // a new run has to be inserted
+			if (runCount == starts.length) {
+				starts = Arrays.copyOf(starts, runCount * 2);
+				ends = Arrays.copyOf(ends, runCount * 2);
+			}
+			System.arraycopy(starts, run, starts, run + 1, runCount - run);
+			System.arraycopy(ends, run, ends, run + 1, runCount - run);
+			runCount++;
+		}
+		else if (removed > 1) {
+			System.arraycopy(starts, lastMerged, starts, run + 1, runCount - lastMerged);
+			System.arraycopy(ends, lastMerged, ends, run + 1, runCount - lastMerged);
+			runCount -= removed - 1;
+		}
+		starts[run] = first;
+		ends[run] = end;
+	}
+
+	/**
+	 * @param index an index
+	 * @return if the index is in this set
+	 */
+	public boolean contains(long index) {
+		int run = Arrays.binarySearch(starts, 0, runCount, index);
+		if (run >= 0) {
+			return true;
+		}
+		run = -run - 2; // the run that starts before the index
+		return run >= 0 && index < ends[run];
+	}
+
+	/**
+	 * @return the amount of indexes in this set
+	 */
+	public long size() {
+		long size = 0;
+		for (int ii = 0; ii < runCount; ii++) {
+			size += ends[ii] - starts[ii];
+		}
+		return size;
+	}
+
+	/**
+	 * @return the amount of runs of consecutive indexes
+	 */
+	public int getRunCount() {
+		return runCount;
+	}
+
+	/**
+	 * @param run which run, runs are in ascending order
+	 * @return the first index of the run
+	 */
+	public long getStart(int run) {
+		return starts[run];
+	}
+
+	/**
+	 * @param run which run, runs are in ascending order
+	 * @return the index after the last index of the run
+	 */
+	public long getEnd(int run) {
+		return ends[run];
+	}
+
+	/**
+	 * @param limit the index after the highest index to keep
+	 * @return the indexes in this set that are lower than the limit
+	 */
+	public IndexRanges below(long limit) {
+		IndexRanges below = new IndexRanges();
+		for (int ii = 0; ii < runCount && starts[ii] < limit; ii++) {
+			below.add(starts[ii], Math.min(ends[ii], limit));
+		}
+		return below;
+	}
+
+}
@@ -0,0 +1,198 @@
+package timeAnalyser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ *
+ */
+
+/**
+ * Writes analysed entries to the output file as JSON Lines: a JSON object on a line of its own for every sequence, which tools can read without parsing the text of Entry.toString.
+ * A sequence is written as its entry index, sequence number, whether it was split off, path and name, whether its time-stamps are irregular, the limit its entry was cut off at,
+ * and its time matches from the latest to the earliest. A time match is written as its kind, its lower and upper time as raw values and as ISO 8601 times in UTC, its operations and whether it happened on another volume.
+ * The raw values are the unsigned amount of tenth microseconds from 1601-01-01 0:0:0, which is exact where the ISO 8601 time is; tools that read JSON numbers as doubles should take the time.
+ * The objects are encoded in UTF-8 straight into the buffer of the entry writer through its append methods, field by field, without building the object or its strings first.
+ * @author Jelle Bouma
+ *
+ */
+public class JsonLinesWriter extends EntryWriter {
+
+	static final byte[][] KINDS = {"at".getBytes(StandardCharsets.US_ASCII), "from".getBytes(StandardCharsets.US_ASCII), "after".getBytes(StandardCharsets.US_ASCII), "between".getBytes(StandardCharsets.US_ASCII)};
+	static final byte[][] VOLUMES = {"no".getBytes(StandardCharsets.US_ASCII), "possibly".getBytes(StandardCharsets.US_ASCII), "yes".getBytes(StandardCharsets.US_ASCII)}; // for onOtherVolume -1, 0 and 1
+	static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+	/**
+	 * Creates or truncates the output file.
+	 * @param output the output file
+	 * @throws IOException
+	 */
+	public JsonLinesWriter(File output) throws IOException {
+		super(output, StandardCharsets.UTF_8, false);
+	}
+
+	/**
+	 * Writes a line for every sequence of an entry.
+	 * @param entry an analysed entry
+	 * @throws IOException
+	 */
+	@Override
+	public void write(Entry entry) throws IOException {
+		for (Sequence sequence : entry.sequences) {
+			FileMetadata[] metadata = sequence.getAllMetadata();
+			append("{\"index\":");
+			appendNumber(entry.getNTFSIndex());
+			append(",\"sequenceNumber\":");
+			appendNumber(entry.getNTFSSequenceNumber());
+			append(sequence.isSplitting() ? ",\"split\":true,\"path\":" : ",\"split\":false,\"path\":");
+			appendString(metadata[0].hasPath() ? metadata[0].getPath() : null);
+			append(",\"name\":");
+			appendString(metadata[0].hasName() ? metadata[0].getName() : null);
+			append(sequence.hasIrregularTimeStamps() ? ",\"irregular\":true,\"truncation\":" : ",\"irregular\":false,\"truncation\":");
+			appendString(entry.getTruncation());
+			append(",\"matches\":[");
+			TimeMatch[] matches = sequence.getTimeMatches();
+			for (int ii = 0; ii < matches.length; ii++) {
+				if (ii > 0) {
+					append((byte) ',');
+				}
+				appendTimeMatch(matches[ii], metadata[ii].onOtherVolume());
+			}
+			append("]}");
+			append((byte) '\n');
+		}
+		endEntry();
+	}
+
+	/**
+	 * @param match a time match
+	 * @param onOtherVolume if the operations (0 = possibly, 1 = definitely) happened on another volume, -1 if not
+	 */
+	private void appendTimeMatch(TimeMatch match, int onOtherVolume) {
+		append("{\"kind\":\"");
+		append(KINDS[(match.isRange ? 2 : 0) + (match.hasUpperBound() ? 1 : 0)]);
+		append("\",\"lower\":");
+		appendTimestamp(match.lower);
+		append(",\"upper\":");
+		appendTimestamp(match.upper);
+		append(",\"operations\":[");
+		for (int ii = 0; ii < match.matchedOperations.size(); ii++) {
+			if (ii > 0) {
+				append((byte) ',');
+			}
+			appendString(match.matchedOperations.get(ii).toString());
+		}
+		append("],\"otherVolume\":\"");
+		append(VOLUMES[onOtherVolume + 1]);
+		append("\"}");
+	}
+
+	/**
+	 * @param timestamp a time-stamp, or null
+	 */
+	private void appendTimestamp(Timestamp timestamp) {
+		if (timestamp == null) {
+			append("null");
+			return;
+		}
+		append("{\"value\":");
+		if (timestamp.timeValue < 0) { // beyond the range of a signed long
+			append(Long.toUnsignedString(timestamp.timeValue));
+		}
+		else {
+			appendNumber(timestamp.timeValue);
+		}
+		append(",\"time\":\"");
+		appendTime(timestamp.timeValue);
+		append("Z\"}");
+	}
+
+	/**
+	 * @param second the amount of seconds from 1601-01-01 0:0:0
+	 * @return the date and time in ISO 8601 up to the second, followed by a dot. Years after 9999 are preceded by a plus sign, as java.time renders them.
+	 */
+	@Override
+	byte[] renderDate(long second) {
+		long[] date = toCivil(second);
+		StringBuilder rendered = new StringBuilder(32);
+		if (date[0] > 9999) {
+			rendered.append('+');
+		}
+		appendPadded(rendered, date[0], 4).append('-');
+		appendPadded(rendered, date[1], 2).append('-');
+		appendPadded(rendered, date[2], 2).append('T');
+		appendPadded(rendered, date[3], 2).append(':');
+		appendPadded(rendered, date[4], 2).append(':');
+		appendPadded(rendered, date[5], 2).append('.');
+		return rendered.toString().getBytes(StandardCharsets.US_ASCII);
+	}
+
+	private static StringBuilder appendPadded(StringBuilder builder, long number, int digits) {
+		for (long limit = 10; digits > 1; digits--, limit *= 10) {
+			if (number < limit) {
+				builder.append('0');
+			}
+		}
+		return builder.append(number);
+	}
+
+	/**
+	 * Appends a JSON string, escaping quotes, backslashes and control characters and encoding the other characters in UTF-8.
+	 * Surrogates that are not part of a pair, which NTFS allows in file names, are escaped so that the line stays valid UTF-8.
+	 * @param text text, or null for a JSON null
+	 */
+	private void appendString(String text) {
+		if (text == null) {
+			append("null");
+			return;
+		}
+		int length = text.length();
+		append((byte) '"');
+		for (int ii = 0; ii < length; ii++) {
+			char character = text.charAt(ii);
+			if (character >= 0x20 && character < 0x80 && character != '"' && character != '\\') {
+				append((byte) character);
+			}
+			else if (character == '"' || character == '\\') {
+				append((byte) '\\');
+				append((byte) character);
+			}
+			else if (character < 0x20) {
+				appendEscape(character);
+			}
+			else if (character < 0x800) {
+				append((byte) (0xC0 | character >> 6));
+				append((byte) (0x80 | character & 0x3F));
+			}
+			else if (Character.isHighSurrogate(character) && ii + 1 < length && Character.isLowSurrogate(text.charAt(ii + 1))) {
+				int codePoint = Character.toCodePoint(character, text.charAt(++ii));
+				append((byte) (0xF0 | codePoint >> 18));
+				append((byte) (0x80 | codePoint >> 12 & 0x3F));
+				append((byte) (0x80 | codePoint >> 6 & 0x3F));
+				append((byte) (0x80 | codePoint & 0x3F));
+			}
+			else if (Character.isSurrogate(character)) {
+				appendEscape(character);
+			}
+			else {
+				append((byte) (0xE0 | character >> 12));
+				append((byte) (0x80 | character >> 6 & 0x3F));
+				append((byte) (0x80 | character & 0x3F));
+			}
+		}
+		append((byte) '"');
+	}
+
+	/**
+	 * @param character a character, appended as a JSON escape of its code in hexadecimal
+	 */
+	private void appendEscape(char character) {
+		append((byte) '\\');
+		append((byte) 'u');
+		for (int shift = 12; shift >= 0; shift -= 4) {
+			append(HEX[character >> shift & 0xF]);
+		}
+	}
+
+}
@@ -1,14 +1,20 @@
 package timeAnalyser;
 
+import java.io.EOFException;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
+import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
+import java.util.BitSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * 
@@ -16,26 +22,39 @@ import java.util.Collections;
 
 /**
  * The MFTReader solves, reads and parses the MFT, with or without filters.
- * Does not support MFTs with over 2^31 entries.
+ * MFTs with over 2^31 entries can not be read into an array at once, they can only be read entry by entry through an EntrySource.
  * @author Jelle Bouma
  *
  */
 public class MFTReader {
 	
+	static final long MAPPING_WINDOW_SIZE = 1L << 28; // upper bound to the amount of bytes mapped at once, 256 MiB
+	static final int ENTRIES_PER_TASK = 4096; // upper bound to the amount of entries parsed by one task of the parallel reader
+	static final int MAX_READ_GAP = 1 << 16; // the most bytes of unrequested entries read to save a positional read, 64 KiB
+	static final long MAX_ENTRIES_IN_ARRAY = Integer.MAX_VALUE - 8; // the largest amount of entries that can be read into an array at once
+	
 	File mft;
 	int entrySize;
 	Filter filter = Filter.ALL;
-	String[] fileNameFilter;
+	NameMatcher fileNameFilter;
 	boolean hasFileNameFilter = false;
-	ArrayList<Integer> indexFilter;
+	IndexRanges indexFilter;
 	boolean hasIndexFilter = false;
+	NTFSVolume volume; // the volume the MFT is read from, null when the MFT is read from an MFT file
+	boolean compressed = false;
+	boolean memoryMapped = false;
+	int threads = 1;
+	Pipeline pipeline; // the pipeline that read entries are submitted to, null if they are only returned
+	PathTable paths; // the full paths given to entries parsed one at a time, null if they get no full path
+	private final NamePool names = new NamePool(); // the file names of the entries read by this reader, shared by its entry stores, paths and meta-data
+	private final ThreadLocal<EntryView> views = ThreadLocal.withInitial(() -> new EntryView(entrySize));
 	
 	/**
 	 * Constructs an MFT reader for the specified MFT and its entry size.
 	 * @param mft the MFT to read and parse
 	 * @param entrySize the size of an entry in the specified MFT file
 	 */
-	MFTReader(File mft, int entrySize) {
+	public MFTReader(File mft, int entrySize) {
 		this.mft = mft;
 		this.entrySize = entrySize;
 	}
@@ -53,169 +72,554 @@ public class MFTReader {
 	}
 	
 	/**
-	 * Constructs an MFT reader for the specified MFT, its entry size, a filter and an additional filter which specifies the indexes of the MFT entries that should be read and parsed.
-	 * Reading entries with this MFTReader has the same complexity per entry as reading all entries.
-	 * This does not read parent directories of the specified indexes which means that the file paths can not be reconstructed.
+	 * Constructs an MFT reader for the specified MFT, its entry size, a filter and an additional filter which specifies the names of the files that should be fully read and parsed.
+	 * Names are matched ignoring case and may contain the wildcards ``*'' and ``?'', such as ``*.docx''.
+	 * Only the matching entries and their parent directories are fully read, the other entries are skipped after their file names have been read.
 	 * @param mft the MFT to read and parse
 	 * @param entrySize the size of an entry in the specified MFT file
 	 * @param filter the filter to use when reading the MFT
-	 * @param entriesToRead the indexes of the MFT entries that should be read
+	 * @param entriesToRead the names and name patterns of the MFT entries that should be read
 	 */
 	MFTReader(File mft, int entrySize, Filter filter, String[] entriesToRead) {
 		this.mft = mft;
 		this.entrySize = entrySize;
 		this.filter = filter;
-		fileNameFilter = entriesToRead;
+		fileNameFilter = new NameMatcher(entriesToRead);
 		hasFileNameFilter = true;
 	}
 	
 	/**
-	 * Constructs an MFT reader for the specified MFT, its entry size, a filter and an additional filter which specifies the names of the files that should be fully read and parsed.
-	 * Entries with different file names will be partially read as some solving of the MFT is required to acquire file names, they will not have their $FN time-stamps parsed.
+	 * Constructs an MFT reader for the specified MFT, its entry size, a filter and an additional filter which specifies the indexes of the MFT entries that should be read and parsed.
+	 * Only the requested entries are read, with as few positional reads as possible.
+	 * This does not read parent directories of the specified indexes which means that the file paths can not be reconstructed.
 	 * @param mft the MFT to read and parse
 	 * @param entrySize the size of an entry in the specified MFT file
 	 * @param filter the filter to use when reading the MFT
-	 * @param entriesToRead the names of the MFT entries that should be read
+	 * @param entriesToRead the indexes of the MFT entries that should be read
 	 */
-	MFTReader(File mft, int entrySize, Filter filter, ArrayList<Integer> entriesToRead) {
+	MFTReader(File mft, int entrySize, Filter filter, IndexRanges entriesToRead) {
 		this.mft = mft;
 		this.entrySize = entrySize;
 		this.filter = filter;
-		Collections.sort(entriesToRead);
 		indexFilter = entriesToRead;
 		hasIndexFilter = true;
 	}
 	
+	/**
+	 * Reads the MFT from the extents it occupies on a raw NTFS volume image, instead of reading the file as an MFT.
+	 * The entry size is taken from the boot sector of the volume.
+	 * @param volume the volume that the file of this MFTReader is an image of
+	 */
+	void setVolume(NTFSVolume volume) {
+		this.volume = volume;
+		entrySize = volume.getEntrySize();
+	}
+	
+	/**
+	 * @param compressed whether the MFT is gzip-compressed, in which case it is inflated while it is read
+	 */
+	void setCompressed(boolean compressed) {
+		this.compressed = compressed;
+	}
+	
+	/**
+	 * @param memoryMapped whether the MFT should be read by mapping it into memory, instead of reading it through a stream
+	 */
+	void setMemoryMapped(boolean memoryMapped) {
+		this.memoryMapped = memoryMapped;
+	}
+	
+	/**
+	 * @param threads the amount of threads to parse the MFT with, 1 parses the MFT sequentially on the calling thread
+	 */
+	void setThreads(int threads) {
+		this.threads = threads;
+	}
+	
+	/**
+	 * @param pipeline the pipeline to submit the entries to as soon as they have been read, so that they are analysed while the rest of the MFT is read
+	 */
+	void setPipeline(Pipeline pipeline) {
+		this.pipeline = pipeline;
+	}
+	
+	/**
+	 * @param paths the full paths of the entries of the MFT, by index, which are given to the entries that are parsed one at a time. Null for no full paths.
+	 */
+	void setPaths(PathTable paths) {
+		this.paths = paths;
+	}
 	
 	/**
 	 * Reads the MFT sequentially and parses the entries accordingly with the filter parameters this MFTReader was constructed with.
+	 * The entries are parsed straight into the columns of an entry store, no Entry objects are made while reading.
+	 * If this MFTReader has a pipeline, every position of the returned store is submitted to it once, in ranges as they are read.
 	 * @return all entries, unless an index filter is used. In that case only the entries with those indexes are returned.
+	 * With a file name filter only the matching entries and their parent directories are read, the other positions are left unread.
 	 * @throws IOException
 	 */
-	Entry[] read() throws IOException {
-		FileInputStream inputStream = new FileInputStream(mft);
-		Entry[] entries;
+	EntryStore read() throws IOException {
+		if (compressed) {
+			EntryStore store = readCompressed();
+			submit(store, 0, store.size());
+			return store;
+		}
 		if (hasIndexFilter) {
-			inputStream.skip(indexFilter.get(0) * entrySize);
-			entries = new Entry[indexFilter.size()];
-			for (int ii = 0; ii < entries.length; ii++) {
-				if (ii != 0) {
-					inputStream.skip((indexFilter.get(ii) - indexFilter.get(ii - 1)) * entrySize);
-				}
-				byte[] entryBytes = new byte[entrySize];
-				inputStream.read(entryBytes);
-				entries[ii] = parseEntry(entryBytes, indexFilter.get(ii));;
+			IndexRanges ranges = indexFilter.below(getEntryCount());
+			if (ranges.size() > MAX_ENTRIES_IN_ARRAY) {
+				throw new IOException("The index filter selects " + ranges.size() + " entries, which is too many to read at once.");
 			}
+			EntryStore store = new EntryStore((int) ranges.size(), true, names);
+			readIndexes(ranges, store, false);
+			return store;
+		}
+		long entryCount = getEntryCount();
+		if (entryCount > MAX_ENTRIES_IN_ARRAY) {
+			throw new IOException(mft + " has " + entryCount + " entries, which is too many to read at once. Read it entry by entry instead.");
+		}
+		if (hasFileNameFilter) {
+			EntryStore store = readByName((int) entryCount);
+			submit(store, 0, store.size());
+			return store;
+		}
+		EntryStore store = new EntryStore((int) entryCount, false, names);
+		if (threads > 1) {
+			readParallel(store);
 		}
 		else {
-			entries = new Entry[(int) (mft.length() / entrySize)]; // array as big as there are entries, will give problems if the MFT has more than 2^31 entries
-			for (int ii = 0; ii < entries.length; ii++) { // until the entries array is filled
-				byte[] entryBytes = new byte[entrySize];
-				inputStream.read(entryBytes); // read bytes of an entry from the MFT
-				entries[ii] = parseEntry(entryBytes, ii);; // parse the bytes of the entry
+			readRange(0, store.size(), store, true);
+		}
+		return store;
+	}
+	
+	/**
+	 * @return the amount of entries in the MFT, or -1 for a compressed MFT of which the amount of entries is only known once it has been read
+	 */
+	long getEntryCount() {
+		if (compressed) {
+			return -1;
+		}
+		return (volume == null ? mft.length() : volume.getMFTSize()) / entrySize;
+	}
+	
+	/**
+	 * Opens an entry source over every entry of the MFT, which reads and parses the entries one at a time accordingly with the filter parameters this MFTReader was constructed with.
+	 * The index filter is not applied by the entry source.
+	 * @return an entry source over every entry of the MFT, which should be closed after use
+	 * @throws IOException
+	 */
+	EntrySource openEntrySource() throws IOException {
+		long entryCount = getEntryCount();
+		return new EntrySource(this, 0, entryCount == -1 ? Long.MAX_VALUE : entryCount);
+	}
+	
+	/**
+	 * Reads a compressed MFT from start to end, as an entry can only be reached by inflating every entry before it.
+	 * The amount of entries is not known in advance, so the store grows until the end of the MFT.
+	 * With an index filter only the entries with those indexes are parsed and kept, reading stops after the last of them.
+	 * @return all entries, unless an index filter is used. In that case only the entries with those indexes are returned.
+	 * @throws IOException
+	 */
+	private EntryStore readCompressed() throws IOException {
+		EntryStore store = new EntryStore(0, hasIndexFilter, names);
+		long indexFilterEnd = hasIndexFilter && indexFilter.getRunCount() > 0 ? indexFilter.getEnd(indexFilter.getRunCount() - 1) : Long.MAX_VALUE;
+		try (EntrySource source = openEntrySource()) {
+			while (source.hasNext() && source.nextIndex() < indexFilterEnd) {
+				if (hasIndexFilter && !indexFilter.contains(source.nextIndex())) {
+					source.nextView(); // skips the entry without parsing it
+					continue;
+				}
+				if (store.size() == MAX_ENTRIES_IN_ARRAY) {
+					throw new IOException(mft + " has too many entries to read at once. Read it entry by entry instead.");
+				}
+				int position = store.size();
+				store.ensureSize(position + 1);
+				store(source.nextView(), store, position);
 			}
 		}
-		inputStream.close();
-		return entries;
+		catch (UncheckedIOException ioEx) {
+			throw ioEx.getCause();
+		}
+		return store;
 	}
 	
 	/**
-	 * Parses an entry from an array of bytes accordingly with the filter parameters this MFTReader was constructed with.
-	 * @param bytes the bytes of the MFT entry, bytes.length should be equal to entrySize
-	 * @param index the index of the entry
-	 * @return an Entry object parsed from the bytes
-	 * @throws UnsupportedEncodingException
-	 */
-	Entry parseEntry(byte[] bytes, int index) throws UnsupportedEncodingException {
-		boolean signatureIntact = ByteBuffer.wrap(bytes, 0, 4).getInt() == 0x46494C45; // checks if the signature of the entry indicates it is intact ("FILE")
-		Entry entry = new Entry(index, signatureIntact);
-		if (signatureIntact) {
-			entry.setNTFSSequenceNumber(wrapAndOrder(bytes, 0x10, 2).getShort());
-			int attributeOffset = wrapAndOrder(bytes, 0x14, 2).getShort();
-			FileMetadata metadata = new FileMetadata();
-			
-			// the bytes at offset 0x16 hold the flags which determine if a file is deleted and/or a directory.
-			metadata.setDirectory(wrapAndOrder(bytes, 0x16, 2).getShort() > 0x01);
-			boolean isDeleted = wrapAndOrder(bytes, 0x16, 2).getShort() % 0x02 == 0x00;
-			
-			metadata.setDeleted(isDeleted);
-			if (isDeleted || filter != Filter.DELETED) {
-				while (attributeOffset < bytes.length) {
-					int attributeType = wrapAndOrder(bytes, attributeOffset, 4).getInt();
-					if (attributeType == 0xFFFFFFFF) { // end of attribute list marker
-						break;
-					}
-					int attributeSize = wrapAndOrder(bytes, attributeOffset + 0x4, 4).getInt();
-					int contentOffset = attributeOffset + wrapAndOrder(bytes, attributeOffset + 0x14, 2).getShort();
-					attributeOffset += attributeSize; // find next attribute
-					if(attributeOffset > 1024 || attributeOffset < 0) {
-						break;
+	 * Reads nothing but the parent directory and file name of every directory, the first pass of analysing the MFT entry by entry with full file paths.
+	 * Only a few integers are kept per entry, together with the names of the directories in the name pool, rather than every parsed entry.
+	 * Files are left out of the table, the name of a file is read again when it is parsed in the second pass.
+	 * @return the full paths of the directories, or null if the MFT has more entries than the table can hold
+	 * @throws IOException
+	 */
+	PathTable readPaths() throws IOException {
+		long entryCount = getEntryCount();
+		if (entryCount > MAX_ENTRIES_IN_ARRAY) {
+			return null;
+		}
+		int capacity = entryCount == -1 ? 0 : (int) entryCount;
+		int[] parents = new int[capacity];
+		int[] nameIDs = new int[capacity];
+		int size = 0;
+		try (EntrySource source = openEntrySource()) {
+			while (source.hasNext()) {
+				if (size == MAX_ENTRIES_IN_ARRAY) {
+					return null;
+				}
+				if (size == parents.length) { // only the size of a compressed MFT is not known in advance
+					int grown = (int) Math.min(MAX_ENTRIES_IN_ARRAY, (long) size + (size >> 1) + 16);
+					parents = Arrays.copyOf(parents, grown);
+					nameIDs = Arrays.copyOf(nameIDs, grown);
+				}
+				EntryView view = source.nextView();
+				parents[size] = -1; // entries without meta-data and files have no path in the table
+				if (view.signatureIntact() && view.isDirectory() && (view.isDeleted() || filter != Filter.DELETED)) { // the meta-data of the directory is parsed exactly like store does
+					parents[size] = (int) FileMetadata.ROOT_INDEX;
+					int fileNameCount = view.getFileNameCount();
+					if (fileNameCount > 0) {
+						long parent = view.getParentIndex(fileNameCount - 1);
+						parents[size] = parent > MAX_ENTRIES_IN_ARRAY ? -1 : (int) parent;
+						nameIDs[size] = view.getNameID(fileNameCount - 1, names);
 					}
-					if (attributeType == 0x00000010) { // $STANDARD_INFORMATION
-						parseStandardInformation(bytes, contentOffset, metadata);
+				}
+				size++;
+			}
+		}
+		catch (UncheckedIOException ioEx) {
+			throw ioEx.getCause();
+		}
+		return new PathTable(parents, nameIDs, size, names);
+	}
+	
+	/**
+	 * Reads the MFT in two passes for the file name filter.
+	 * The first pass decodes nothing but the file names and parent directories, to find the entries with a matching file name.
+	 * The second pass fully reads and parses only those entries and their ancestor directories, which are needed for their full file paths.
+	 * @param entryCount the amount of entries in the MFT
+	 * @return a store with the read entries at their index, the positions of the entries that were skipped are left unread
+	 * @throws IOException
+	 */
+	private EntryStore readByName(int entryCount) throws IOException {
+		int[] parents = new int[entryCount]; // the parent directory of every entry, -1 if it has none in the MFT
+		BitSet selected = new BitSet(entryCount);
+		try (EntrySource source = openEntrySource()) {
+			for (int ii = 0; ii < entryCount; ii++) {
+				EntryView view = source.nextView();
+				parents[ii] = -1;
+				if (!view.signatureIntact()) {
+					continue;
+				}
+				int fileNameCount = view.getFileNameCount();
+				long parent = fileNameCount > 0 ? view.getParentIndex(fileNameCount - 1) : FileMetadata.ROOT_INDEX;
+				if (parent < entryCount) {
+					parents[ii] = (int) parent;
+				}
+				if (filter != Filter.DELETED || view.isDeleted()) { // with the deleted filter only deleted entries are parsed
+					for (int jj = 0; jj < fileNameCount && !selected.get(ii); jj++) {
+						if (matchesFileNameFilter(view.getName(jj))) {
+							selected.set(ii);
+						}
 					}
-					if (attributeType == 0x00000030) { // $FILE_NAME
-						parseFileName(bytes, contentOffset, attributeOffset, metadata);
+				}
+			}
+		}
+		catch (UncheckedIOException ioEx) {
+			throw ioEx.getCause();
+		}
+		if (filter != Filter.DELETED) { // deleted files do not get a full path, so their directories are not needed
+			BitSet matches = (BitSet) selected.clone();
+			for (int ii = matches.nextSetBit(0); ii >= 0; ii = matches.nextSetBit(ii + 1)) {
+				for (int parent = parents[ii]; parent >= 0 && !selected.get(parent); parent = parents[parent]) { // stops at the root, which is its own parent, or at a directory that is already selected
+					selected.set(parent);
+				}
+			}
+		}
+		IndexRanges ranges = new IndexRanges();
+		for (int first = selected.nextSetBit(0); first >= 0; first = selected.nextSetBit(selected.nextClearBit(first))) {
+			ranges.add(first, selected.nextClearBit(first));
+		}
+		EntryStore store = new EntryStore(entryCount, false, names);
+		readIndexes(ranges, store, true);
+		return store;
+	}
+	
+	/**
+	 * Reads only the entries with the specified indexes, skipping over the other entries.
+	 * Requested entries that are close together are fetched with a single positional read of up to READ_BLOCK_SIZE bytes, reading the few entries in between rather than issuing another read.
+	 * @param ranges the indexes of the entries to read, all within the MFT
+	 * @param store the store to parse the entries into
+	 * @param atIndex whether the entries are put at their index in the store, otherwise they are put one after the other in ascending order of index
+	 * @throws IOException
+	 */
+	private void readIndexes(IndexRanges ranges, EntryStore store, boolean atIndex) throws IOException {
+		int batchSize = Math.max(1, EntrySource.READ_BLOCK_SIZE / entrySize); // the most entries fetched by one read
+		long maxGap = Math.max(1, MAX_READ_GAP / entrySize); // the most unrequested entries read to save a read
+		ByteBuffer batch = ByteBuffer.allocate(batchSize * entrySize).order(ByteOrder.LITTLE_ENDIAN);
+		int filled = 0;
+		try (FileChannel channel = FileChannel.open(mft.toPath(), StandardOpenOption.READ)) {
+			int run = 0;
+			long next = ranges.getRunCount() > 0 ? ranges.getStart(0) : 0;
+			while (run < ranges.getRunCount()) {
+				long batchFirst = next;
+				long batchLimit = batchFirst + batchSize;
+				int lastRun = run;
+				long batchEnd = Math.min(ranges.getEnd(run), batchLimit);
+				while (batchEnd == ranges.getEnd(lastRun) && lastRun + 1 < ranges.getRunCount()
+						&& ranges.getStart(lastRun + 1) - batchEnd <= maxGap && ranges.getStart(lastRun + 1) < batchLimit) { // coalesce the next run into this read
+					lastRun++;
+					batchEnd = Math.min(ranges.getEnd(lastRun), batchLimit);
+				}
+				readEntries(channel, batch, batchFirst, (int) (batchEnd - batchFirst));
+				int batchFilled = filled;
+				for (int ii = run; ii <= lastRun; ii++) {
+					long end = Math.min(ranges.getEnd(ii), batchEnd);
+					for (long index = Math.max(ranges.getStart(ii), batchFirst); index < end; index++) {
+						store(views.get().wrap(batch, (int) (index - batchFirst) * entrySize, index), store, atIndex ? (int) index : filled++);
 					}
 				}
+				if (!atIndex) {
+					submit(store, batchFilled, filled);
+				}
+				if (batchEnd == ranges.getEnd(lastRun)) {
+					run = lastRun + 1;
+					next = run < ranges.getRunCount() ? ranges.getStart(run) : 0;
+				}
+				else { // the batch was full before the end of the last run
+					run = lastRun;
+					next = batchEnd;
+				}
 			}
-			entry.setFileMetadata(metadata);
 		}
-		return entry;
 	}
 	
 	/**
-	 * Parses the $STANDARD_INFORMATION attribute from an array of bytes containing a file entry.
-	 * @param bytes the bytes of the MFT entry, bytes.length should be equal to entrySize
-	 * @param contentOffset the offset to the contents of the $STANDARD_INFORMATION attribute
-	 * @param metadata the meta-data object to write to.
+	 * Reads a number of whole entries into the start of the buffer, from the MFT file or from the extents of the MFT on the volume.
+	 * @param channel a channel on the file of this MFTReader
+	 * @param buffer the buffer to read into
+	 * @param first the index of the first entry to read
+	 * @param count the amount of entries to read
+	 * @throws IOException
 	 */
-	private void parseStandardInformation(byte[] bytes, int contentOffset, FileMetadata metadata) {
-		Timestamp[] si = new Timestamp[4];
-		for (int ii = 0; ii < si.length; ii++) {
-			si[ii] = new Timestamp(wrapAndOrder(bytes, contentOffset + ii * 8, 8).getLong());
+	void readEntries(FileChannel channel, ByteBuffer buffer, long first, int count) throws IOException {
+		if (volume == null) {
+			readFully(channel, buffer, first * entrySize, count * entrySize);
+		}
+		else {
+			volume.readMFT(channel, buffer, first * entrySize, count * entrySize);
 		}
-		metadata.setSI(si);
 	}
 	
 	/**
-	 * Parses the $FILE_NAME attribute from an array of bytes containing a file entry.
-	 * @param bytes the bytes of the MFT entry, bytes.length should be equal to entrySize
-	 * @param contentOffset the offset to the contents of the $FILE_NAME attribute
-	 * @param endOffset the offset to the end of the $FILE_NAME attribute
-	 * @param metadata the meta-data object to write to.
+	 * Reads a number of bytes from a position in the channel into the start of the buffer.
+	 * @param channel the channel to read from
+	 * @param buffer the buffer to read into
+	 * @param position the position in the channel to read from
+	 * @param length the amount of bytes to read
+	 * @throws IOException
 	 */
-	private void parseFileName(byte[] bytes, int contentOffset, int endOffset, FileMetadata metadata) throws UnsupportedEncodingException {
-		metadata.setParentID(wrapAndOrder(bytes, contentOffset, 4).getInt()); // parent directory 
-		Timestamp[] fn = new Timestamp[4];
-		for (int ii = 0; ii < fn.length; ii++) {
-			fn[ii] = new Timestamp(wrapAndOrder(bytes, contentOffset + ii * 8 + 8, 8).getLong());
+	static void readFully(FileChannel channel, ByteBuffer buffer, long position, int length) throws IOException {
+		buffer.clear().limit(length);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) == -1) {
+				throw new EOFException("Unexpected end of file at byte " + (position + buffer.position()));
+			}
 		}
-		int fileNameOffset = contentOffset + 0x42;
-		String name = new String(Arrays.copyOfRange(bytes, fileNameOffset, endOffset), "UTF-16LE").trim();
-		if (hasFileNameFilter) {
-			for (String fileName : fileNameFilter) {
-				if (fileName.equalsIgnoreCase(name)) {
-					metadata.setFN(fn);
+	}
+	
+	/**
+	 * Reads the MFT by splitting it into ranges of whole entries which are parsed in parallel by a pool of threads.
+	 * Every range is parsed into its own positions of the store, so the entries end up in index order regardless of which range finishes first.
+	 * The ranges are submitted to the pipeline, if there is one, by this thread in index order as they are parsed, because the pipeline only writes a batch once every earlier batch has been written.
+	 * @param store the store to parse the entries into, as big as there are entries
+	 * @throws IOException
+	 */
+	private void readParallel(EntryStore store) throws IOException {
+		int entriesPerTask = Math.max(1, Math.min(ENTRIES_PER_TASK, store.size() / (threads * 4))); // at least four tasks per thread so threads that finish early can take over work
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			ArrayList<Future<Void>> tasks = new ArrayList<>();
+			for (int first = 0; first < store.size(); first += entriesPerTask) {
+				int rangeFirst = first;
+				int rangeEnd = Math.min(first + entriesPerTask, store.size());
+				tasks.add(pool.submit(() -> {
+					readRange(rangeFirst, rangeEnd, store, false);
+					return null;
+				}));
+			}
+			for (int ii = 0; ii < tasks.size(); ii++) {
+				tasks.get(ii).get();
+				submit(store, ii * entriesPerTask, Math.min((ii + 1) * entriesPerTask, store.size()));
+			}
+		}
+		catch (InterruptedException interruptedEx) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while reading " + mft, interruptedEx);
+		}
+		catch (ExecutionException executionEx) {
+			if (executionEx.getCause() instanceof IOException) {
+				throw (IOException) executionEx.getCause();
+			}
+			throw new IOException("Failed to parse " + mft, executionEx.getCause());
+		}
+		finally {
+			pool.shutdownNow();
+		}
+	}
+	
+	/**
+	 * Reads and parses a range of entries from the MFT into the store, through an entry source.
+	 * @param first index of the first entry in the range
+	 * @param end index after the last entry in the range
+	 * @param store the store to parse the entries into, at their index
+	 * @param submitting whether to submit the parsed entries to the pipeline, if there is one, a batch at a time
+	 * @throws IOException
+	 */
+	private void readRange(int first, int end, EntryStore store, boolean submitting) throws IOException {
+		int submitSize = pipeline == null || !submitting ? end - first : pipeline.getBatchSize();
+		try (EntrySource source = new EntrySource(this, first, end)) {
+			int submitFirst = first;
+			while (submitFirst < end) {
+				int submitEnd = (int) Math.min((long) submitFirst + submitSize, end);
+				for (int ii = submitFirst; ii < submitEnd; ii++) {
+					store(source.nextView(), store, ii);
+				}
+				if (submitting) {
+					submit(store, submitFirst, submitEnd);
 				}
+				submitFirst = submitEnd;
 			}
 		}
-		else {
-			metadata.setFN(fn);
+		catch (UncheckedIOException ioEx) {
+			throw ioEx.getCause();
+		}
+	}
+	
+	/**
+	 * Submits a range of read entries to the pipeline, if this MFTReader has one.
+	 * @param store the store holding the read entries
+	 * @param first the position of the first read entry in the store
+	 * @param end the position after the last read entry in the store
+	 */
+	private void submit(EntryStore store, int first, int end) {
+		if (pipeline != null) {
+			pipeline.submit(store, first, end);
+		}
+	}
+	
+	/**
+	 * Parses an entry from a little endian buffer accordingly with the filter parameters this MFTReader was constructed with.
+	 * All reads are absolute, the position of the buffer is left untouched, and nothing is allocated besides the parsed entry itself.
+	 * @param buffer little endian buffer holding the MFT entry, for instance a mapped window of the MFT
+	 * @param base the offset of the MFT entry in the buffer, all offsets within the entry are relative to this
+	 * @param index the index of the entry
+	 * @return an Entry object parsed from the bytes
+	 */
+	public Entry parseEntry(ByteBuffer buffer, int base, long index) {
+		return toEntry(views.get().wrap(buffer, base, index));
+	}
+	
+	/**
+	 * Turns a view on an entry into an Entry accordingly with the filter parameters this MFTReader was constructed with.
+	 * Only what the filters let through is decoded: entries that are not deleted get no meta-data when only deleted files are read,
+	 * and entries without a file name from the file name filter get no time-stamps. If this MFTReader has full paths, the entry gets its full path as a store would give it.
+	 * @param view the view on the MFT entry
+	 * @return an Entry object parsed from the view
+	 */
+	Entry toEntry(EntryView view) {
+		boolean signatureIntact = view.signatureIntact(); // checks if the signature of the entry indicates it is intact ("FILE")
+		Entry entry = new Entry(view.getIndex(), signatureIntact);
+		if (!signatureIntact) {
+			return entry;
+		}
+		entry.setNTFSSequenceNumber(view.getNTFSSequenceNumber());
+		boolean isDeleted = view.isDeleted();
+		if (!isDeleted && filter == Filter.DELETED) {
+			return entry;
+		}
+		FileMetadata metadata = new FileMetadata();
+		metadata.setDirectory(view.isDirectory());
+		metadata.setDeleted(isDeleted);
+		int fileNameCount = view.getFileNameCount();
+		int timestampsFrom = getTimestampsFrom(view);
+		int nameID = NamePool.EMPTY;
+		if (fileNameCount > 0) {
+			metadata.setParentID(view.getParentIndex(fileNameCount - 1));
+			nameID = view.getNameID(fileNameCount - 1, names);
+			metadata.setName(names, nameID);
+		}
+		if (timestampsFrom != -1) {
+			Timestamps timestamps = metadata.getTimestamps();
+			for (int ii = 0; ii < 4; ii++) {
+				timestamps.setFN(ii, view.getFNTimestamp(timestampsFrom, ii));
+			}
+			if (view.hasSI()) {
+				for (int ii = 0; ii < 4; ii++) {
+					timestamps.setSI(ii, view.getSITimestamp(ii));
+				}
+			}
+		}
+		if (paths != null && !isDeleted && metadata.hasSIAndFN()) { // only directories are in the table, a file gets the path of its parent directory followed by its own name
+			metadata.setPath(view.isDirectory() ? paths.getPath((int) view.getIndex()) : paths.getPath((int) view.getIndex(), metadata.getParentID(), nameID));
+		}
+		entry.setFileMetadata(metadata);
+		return entry;
+	}
+	
+	/**
+	 * Parses a view on an entry into a position of an entry store, exactly like toEntry turns it into an Entry.
+	 * @param view the view on the MFT entry
+	 * @param store the store to parse the entry into
+	 * @param position the position in the store
+	 */
+	void store(EntryView view, EntryStore store, int position) {
+		boolean signatureIntact = view.signatureIntact();
+		store.setEntry(position, view.getIndex(), signatureIntact, signatureIntact ? view.getNTFSSequenceNumber() : 0);
+		if (!signatureIntact) {
+			return;
+		}
+		boolean isDeleted = view.isDeleted();
+		if (!isDeleted && filter == Filter.DELETED) {
+			return;
+		}
+		store.setMetadata(position, view.isDirectory(), isDeleted);
+		int fileNameCount = view.getFileNameCount();
+		int timestampsFrom = getTimestampsFrom(view);
+		if (fileNameCount > 0) {
+			store.setNameID(position, view.getParentIndex(fileNameCount - 1), view.getNameID(fileNameCount - 1, names));
+		}
+		if (timestampsFrom != -1) {
+			for (int ii = 0; ii < 4; ii++) {
+				store.setFN(position, ii, view.getFNTimestamp(timestampsFrom, ii));
+			}
+			if (view.hasSI()) {
+				for (int ii = 0; ii < 4; ii++) {
+					store.setSI(position, ii, view.getSITimestamp(ii));
+				}
+			}
+		}
+	}
+	
+	/**
+	 * @param view the view on an MFT entry
+	 * @return the last $FILE_NAME attribute that the file name filter lets through, from which the $FN time-stamps are taken, or -1 if there is none
+	 */
+	private int getTimestampsFrom(EntryView view) {
+		int timestampsFrom = -1;
+		for (int ii = 0; ii < view.getFileNameCount(); ii++) {
+			if (!hasFileNameFilter) {
+				timestampsFrom = ii;
+			}
+			else if (matchesFileNameFilter(view.getName(ii))) {
+				timestampsFrom = ii;
+			}
 		}
-		metadata.setName(name);
+		return timestampsFrom;
 	}
 	
 	/**
-	 * Help method to read little endian byte order numbers from the MFT.
-	 * Wraps a byte array to a buffer, using little endian byte order.
-	 * @param bs the byte array that will back the new buffer
-	 * @param off offset to the bytes that will be wrapped
-	 * @param len length, amount of bytes to be wrapped
-	 * @see ByteBuffer
+	 * @param name a file name
+	 * @return if the file name matches a name or pattern of the file name filter
 	 */
-	private ByteBuffer wrapAndOrder(byte[] bs, int off, int len) {
-		return ByteBuffer.wrap(bs, off, len).order(ByteOrder.LITTLE_ENDIAN);
+	private boolean matchesFileNameFilter(String name) {
+		return fileNameFilter.matches(name);
 	}
 	
 }
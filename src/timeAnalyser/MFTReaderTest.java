@@ -0,0 +1,176 @@
+/**
+ *
+ */
+package timeAnalyser;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Test;
+
+/**
+ * @author Jelle Bouma
+ *
+ */
+public class MFTReaderTest {
+
+	static final int ENTRY_SIZE = 1024;
+	static final int ENTRIES = 100; // enough entries for the tables of a compressed MFT to grow several times
+	static final long TIME_VALUE = 132061996440000000L; // some time-stamp
+
+	/**
+	 * Writes an entry with a $STANDARD_INFORMATION and a $FILE_NAME attribute.
+	 * @param mft the MFT
+	 * @param index the index of the entry
+	 * @param flags the flags of the entry, 0x01 for a file in use, 0x03 for a directory in use
+	 * @param parent the index of the parent directory
+	 * @param name the file name
+	 */
+	private static void writeEntry(ByteBuffer mft, int index, int flags, long parent, String name) {
+		int base = index * ENTRY_SIZE;
+		mft.putInt(base, EntryView.FILE_SIGNATURE);
+		mft.putShort(base + 0x10, (short) 1);
+		mft.putShort(base + 0x14, (short) 0x38);
+		mft.putShort(base + 0x16, (short) flags);
+		int attribute = base + 0x38;
+		mft.putInt(attribute, EntryView.STANDARD_INFORMATION);
+		mft.putInt(attribute + 0x04, 0x60);
+		mft.putShort(attribute + 0x14, (short) 0x18);
+		for (int ii = 0; ii < 4; ii++) {
+			mft.putLong(attribute + 0x18 + ii * 8, TIME_VALUE + index);
+		}
+		attribute += 0x60;
+		int attributeSize = (0x18 + 0x42 + name.length() * 2 + 7) / 8 * 8;
+		mft.putInt(attribute, EntryView.FILE_NAME);
+		mft.putInt(attribute + 0x04, attributeSize);
+		mft.putShort(attribute + 0x14, (short) 0x18);
+		mft.putLong(attribute + 0x18, parent);
+		for (int ii = 0; ii < 4; ii++) {
+			mft.putLong(attribute + 0x20 + ii * 8, TIME_VALUE + index);
+		}
+		mft.put(attribute + 0x18 + 0x40, (byte) name.length());
+		for (int ii = 0; ii < name.length(); ii++) {
+			mft.putChar(attribute + 0x18 + 0x42 + ii * 2, name.charAt(ii));
+		}
+		mft.putInt(attribute + attributeSize, EntryView.END_OF_ATTRIBUTES);
+	}
+
+	/**
+	 * Builds an MFT with a directory tree: the root directory at index 5, nested directories, a cycle of directories,
+	 * a deleted directory, and files in each of them, outside of the MFT, in an entry that was never written and in themselves.
+	 * @return the MFT
+	 */
+	private static byte[] createMFT() {
+		ByteBuffer mft = ByteBuffer.allocate(ENTRIES * ENTRY_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		writeEntry(mft, 5, 0x03, 5, ".");
+		writeEntry(mft, 6, 0x03, 5, "Users");
+		writeEntry(mft, 7, 0x03, 6, "Jelle");
+		writeEntry(mft, 8, 0x03, 9, "a"); // cycle of 8 and 9
+		writeEntry(mft, 9, 0x03, 8, "b");
+		writeEntry(mft, 10, 0x01, 8, "below cycle.txt");
+		writeEntry(mft, 11, 0x01, 500, "orphan.txt"); // parent outside of the MFT
+		writeEntry(mft, 12, 0x01, 4, "lost.txt"); // parent that was never written
+		writeEntry(mft, 13, 0x02, 7, "deleted"); // deleted directory
+		writeEntry(mft, 14, 0x01, 13, "in deleted.txt");
+		writeEntry(mft, 15, 0x01, 15, "own parent.txt");
+		for (int ii = 16; ii < ENTRIES; ii++) {
+			writeEntry(mft, ii, ii % 7 == 0 ? 0x00 : 0x01, 5 + ii % 3, "file" + ii + ".txt"); // some of the files are deleted
+		}
+		return mft.array();
+	}
+
+	/**
+	 * @param entry a parsed entry
+	 * @return the full path of the entry, or null if it has none
+	 */
+	private static String getPath(Entry entry) {
+		return entry.hasMetadata() ? entry.getSequence(0).getMetadata(0).getPath() : null;
+	}
+
+	/**
+	 * @param mft the MFT file
+	 * @param compressed whether the MFT is gzip-compressed
+	 * @return the paths of the entries as a store gives them when every entry has been read
+	 * @throws IOException
+	 */
+	private static ArrayList<String> getStorePaths(File mft, boolean compressed) throws IOException {
+		MFTReader reader = new MFTReader(mft, ENTRY_SIZE);
+		reader.setCompressed(compressed);
+		EntryStore store = reader.read();
+		store.setPaths(new PathTable(store));
+		ArrayList<String> paths = new ArrayList<>();
+		for (int ii = 0; ii < store.size(); ii++) {
+			paths.add(getPath(store.getEntry(ii)));
+		}
+		return paths;
+	}
+
+	/**
+	 * @param mft the MFT file
+	 * @param compressed whether the MFT is gzip-compressed
+	 * @return the paths of the entries as they are given to entries parsed one at a time, after a first pass over the directories
+	 * @throws IOException
+	 */
+	private static ArrayList<String> getStreamedPaths(File mft, boolean compressed) throws IOException {
+		MFTReader reader = new MFTReader(mft, ENTRY_SIZE);
+		reader.setCompressed(compressed);
+		reader.setPaths(reader.readPaths());
+		ArrayList<String> paths = new ArrayList<>();
+		try (EntrySource source = reader.openEntrySource()) {
+			while (source.hasNext()) {
+				paths.add(getPath(reader.toEntry(source.nextView())));
+			}
+		}
+		return paths;
+	}
+
+	/**
+	 * Test method for {@link timeAnalyser.MFTReader#readPaths()}.
+	 */
+	@Test
+	public void readPaths_Should_GiveTheEntriesThePathsOfAStore() throws IOException {
+		File mft = File.createTempFile("mft", ".bin");
+		try {
+			Files.write(mft.toPath(), createMFT());
+			ArrayList<String> paths = getStorePaths(mft, false);
+			assertEquals(".\\Users\\Jelle\\deleted\\in deleted.txt", paths.get(14));
+			assertEquals(".\\Users\\file16.txt", paths.get(16));
+			assertEquals("\\below cycle.txt", paths.get(10));
+			assertEquals("own parent.txt", paths.get(15));
+			assertEquals(paths, getStreamedPaths(mft, false));
+		}
+		finally {
+			mft.delete();
+		}
+	}
+
+	/**
+	 * Test method for {@link timeAnalyser.MFTReader#readPaths()}.
+	 */
+	@Test
+	public void readPathsOfCompressedMFT_Should_GrowTheTableToEveryEntry() throws IOException {
+		File mft = File.createTempFile("mft", ".bin.gz");
+		try {
+			try (OutputStream output = new GZIPOutputStream(new FileOutputStream(mft))) {
+				output.write(createMFT());
+			}
+			ArrayList<String> paths = getStreamedPaths(mft, true);
+			assertEquals(ENTRIES, paths.size());
+			assertEquals(".\\Users\\Jelle\\file95.txt", paths.get(95));
+			assertEquals(getStorePaths(mft, true), paths);
+		}
+		finally {
+			mft.delete();
+		}
+	}
+
+}
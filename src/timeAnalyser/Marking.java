@@ -5,6 +5,7 @@ package timeAnalyser;
 
 /**
  * Marking indicating which time-stamps are matched.
+ * The marking is a bitmap of the eight time-stamps, so there are only 256 markings, which OperationTable indexes its rows by.
  * 
  * @author Jelle Bouma
  *
@@ -12,15 +13,24 @@ package timeAnalyser;
 public class Marking {
 	private int bitmap = 0;
 	
+	static final int MARKINGS = 256; // the amount of different markings
+	
 	public Marking() {
 	}
 	
-	private Marking(int bitmap) {
+	Marking(int bitmap) {
 		this.bitmap = bitmap;
 	}
 	
+	/**
+	 * @return the bitmap of the marking, in which bit ii is set if time-stamp ii is marked
+	 */
+	int getBitmap() {
+		return bitmap;
+	}
+	
 	public boolean isMarked(int index) {
-		return (bitmap & (int)Math.pow(2, index)) == (int)Math.pow(2, index);
+		return (bitmap & (1 << index)) != 0;
 	}
 	
 	/**
@@ -41,7 +51,7 @@ public class Marking {
 	 * @param index the index to be marked
 	 */
 	public void mark(int index) {
-		bitmap |= (int)Math.pow(2, index);
+		bitmap |= 1 << index;
 	}
 	
 	/**
@@ -57,7 +67,7 @@ public class Marking {
 	 * @param index
 	 */
 	public void unmark(int index) {
-		bitmap ^= bitmap & (int)Math.pow(2, index);
+		bitmap &= ~(1 << index);
 	}
 	
 	/**
@@ -0,0 +1,156 @@
+package timeAnalyser;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *
+ */
+
+/**
+ * A bounded cache of the matched operations of an operation table, keyed on what matching depends on: the signature of the unmarked time-stamps, the marking and whether the file is a directory.
+ * The absolute times do not matter, so the many files of a volume that were only created or copied share a handful of keys and skip matching altogether.
+ * The cache is split into stripes which each hold the least recently used keys they have room for and are locked separately, so several analysers can use it at once.
+ * The cached lists are shared by every file with the same key and should not be modified.
+ * @author Jelle Bouma
+ *
+ */
+public class MatchCache {
+
+	static final int DEFAULT_CAPACITY = 4096;
+	static final int STRIPES = 16;
+
+	private final Stripe[] stripes = new Stripe[STRIPES];
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	/**
+	 * @param capacity the amount of keys the cache holds at most
+	 */
+	public MatchCache(int capacity) {
+		int stripeCapacity = Math.max(1, capacity / STRIPES);
+		for (int ii = 0; ii < stripes.length; ii++) {
+			stripes[ii] = new Stripe(stripeCapacity);
+		}
+	}
+
+	/**
+	 * Makes the key of a match, leaving out the parts of the signature that concern marked time-stamps.
+	 * @param signature the signature of the time-stamps
+	 * @param bitmap the bitmap of the marking
+	 * @param isDirectory if the file meta-data describes a directory
+	 * @return the key
+	 */
+	static Key getKey(TimestampSignature signature, int bitmap, boolean isDirectory) {
+		int pairs = TimestampSignature.UNMARKED_PAIRS[bitmap];
+		long roundings = (signature.roundings & TimestampSignature.UNMARKED_ROUNDINGS[bitmap]) & 0xFFFFFFFFL;
+		long relations = (signature.earlier & pairs) | (long) (signature.later & pairs) << 28;
+		return new Key(roundings | (long) bitmap << 32 | (isDirectory ? 1L << 40 : 0), relations);
+	}
+
+	/**
+	 * @param key the key of a match
+	 * @return the cached matched operations, or null if the key is not in the cache
+	 */
+	ArrayList<ArrayList<Operation>> get(Key key) {
+		ArrayList<ArrayList<Operation>> matchedOperations = getStripe(key).get(key);
+		(matchedOperations == null ? misses : hits).incrementAndGet();
+		return matchedOperations;
+	}
+
+	/**
+	 * @param key the key of a match
+	 * @param matchedOperations the matched operations, which should not be modified after they have been cached
+	 */
+	void put(Key key, ArrayList<ArrayList<Operation>> matchedOperations) {
+		getStripe(key).put(key, matchedOperations);
+	}
+
+	private Stripe getStripe(Key key) {
+		return stripes[(key.hashCode() >>> 16) & (STRIPES - 1)];
+	}
+
+	/**
+	 * @return the amount of matches that were found in the cache
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return the amount of matches that were not found in the cache
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * @return the amount of keys that were removed to make room for others
+	 */
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	public String toString() {
+		return hits + " hits, " + misses + " misses, " + evictions + " evictions";
+	}
+
+	/**
+	 * The key of a match, the signature, marking and directory flag packed into two longs.
+	 */
+	static class Key {
+		private final long first;
+		private final long second;
+
+		Key(long first, long second) {
+			this.first = first;
+			this.second = second;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof Key && ((Key) other).first == first && ((Key) other).second == second;
+		}
+
+		@Override
+		public int hashCode() {
+			long hash = first * 0x9E3779B97F4A7C15L + second;
+			hash *= 0xC2B2AE3D27D4EB4FL;
+			return (int) (hash ^ (hash >>> 32));
+		}
+	}
+
+	/**
+	 * A part of the cache holding the least recently used keys, locked as a whole.
+	 */
+	private class Stripe {
+		private final LinkedHashMap<Key, ArrayList<ArrayList<Operation>>> map;
+
+		Stripe(int capacity) {
+			map = new LinkedHashMap<Key, ArrayList<ArrayList<Operation>>>(capacity * 2, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<Key, ArrayList<ArrayList<Operation>>> eldest) {
+					if (size() > capacity) {
+						evictions.incrementAndGet();
+						return true;
+					}
+					return false;
+				}
+			};
+		}
+
+		synchronized ArrayList<ArrayList<Operation>> get(Key key) {
+			return map.get(key);
+		}
+
+		synchronized void put(Key key, ArrayList<ArrayList<Operation>> matchedOperations) {
+			map.put(key, matchedOperations);
+		}
+	}
+
+}
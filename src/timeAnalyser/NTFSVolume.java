@@ -0,0 +1,268 @@
+package timeAnalyser;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ *
+ */
+
+/**
+ * A raw NTFS volume image, from which the MFT is read directly instead of from an MFT that has been carved out of the image.
+ * The boot sector tells where the MFT starts and how big its entries are, the run list of the $DATA attribute of the first MFT entry ($MFT itself) tells which clusters hold the (possibly fragmented) MFT.
+ * The MFT is read as one continuous file by mapping offsets within the MFT onto its extents on the volume, so the entries are exactly those a carved MFT would have.
+ * @author Jelle Bouma
+ *
+ */
+public class NTFSVolume {
+
+	static final String OEM_ID = "NTFS    "; // the OEM ID of the boot sector of an NTFS volume, at offset 0x03
+	static final int BOOT_SECTOR_SIZE = 512;
+	static final int FIXUP_STRIDE = 512; // the update sequence number is written at the end of every 512 bytes of an MFT entry
+	static final int DATA_ATTRIBUTE = 0x80;
+	static final int END_OF_ATTRIBUTES = 0xFFFFFFFF;
+
+	private final File image;
+	private int clusterSize;
+	private int entrySize;
+	private long mftSize; // the size of the MFT in bytes
+	private long[] logicalStarts = new long[0]; // offset within the MFT of every extent, in bytes
+	private long[] physicalStarts = new long[0]; // offset within the volume of every extent in bytes, -1 for sparse extents
+	private long[] lengths = new long[0]; // length of every extent, in bytes
+
+	/**
+	 * Reads the boot sector and the first MFT entry of an NTFS volume image to find the extents of the MFT.
+	 * @param image the raw NTFS volume image
+	 * @throws IOException if the image could not be read, or if it is not an NTFS volume image with a readable MFT
+	 */
+	public NTFSVolume(File image) throws IOException {
+		this.image = image;
+		try (FileChannel channel = FileChannel.open(image.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer bootSector = ByteBuffer.allocate(BOOT_SECTOR_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			MFTReader.readFully(channel, bootSector, 0, BOOT_SECTOR_SIZE);
+			if (!hasOEMID(bootSector)) {
+				throw new IOException(image + " is not an NTFS volume image.");
+			}
+			int bytesPerSector = Short.toUnsignedInt(bootSector.getShort(0x0B));
+			int sectorsPerCluster = Byte.toUnsignedInt(bootSector.get(0x0D));
+			if (sectorsPerCluster > 0x80) { // large clusters are stored as a negative power of two
+				sectorsPerCluster = 1 << (256 - sectorsPerCluster);
+			}
+			clusterSize = bytesPerSector * sectorsPerCluster;
+			long mftCluster = bootSector.getLong(0x30);
+			byte clustersPerEntry = bootSector.get(0x40);
+			entrySize = clustersPerEntry > 0 ? clustersPerEntry * clusterSize : 1 << -clustersPerEntry; // entries smaller than a cluster are stored as a negative power of two bytes
+			if (clusterSize <= 0 || entrySize < FIXUP_STRIDE || mftCluster <= 0) {
+				throw new IOException("The boot sector of " + image + " is damaged.");
+			}
+			ByteBuffer mftEntry = ByteBuffer.allocate(entrySize).order(ByteOrder.LITTLE_ENDIAN);
+			MFTReader.readFully(channel, mftEntry, mftCluster * clusterSize, entrySize);
+			applyFixups(mftEntry);
+			readDataRuns(mftEntry);
+		}
+	}
+
+	/**
+	 * @param image a file
+	 * @return if the file starts with the boot sector of an NTFS volume, rather than with an MFT entry
+	 * @throws IOException
+	 */
+	public static boolean isNTFSImage(File image) throws IOException {
+		if (image.length() < BOOT_SECTOR_SIZE) {
+			return false;
+		}
+		try (FileChannel channel = FileChannel.open(image.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer bootSector = ByteBuffer.allocate(BOOT_SECTOR_SIZE);
+			MFTReader.readFully(channel, bootSector, 0, BOOT_SECTOR_SIZE);
+			return hasOEMID(bootSector);
+		}
+	}
+
+	/**
+	 * @param bootSector the first sector of a volume
+	 * @return if the OEM ID of the boot sector is that of NTFS
+	 */
+	private static boolean hasOEMID(ByteBuffer bootSector) {
+		byte[] oemID = new byte[OEM_ID.length()];
+		for (int ii = 0; ii < oemID.length; ii++) {
+			oemID[ii] = bootSector.get(0x03 + ii);
+		}
+		return Arrays.equals(oemID, OEM_ID.getBytes(StandardCharsets.US_ASCII));
+	}
+
+	/**
+	 * Restores the last two bytes of every 512 bytes of an MFT entry, which are replaced by the update sequence number when the entry is written to disk.
+	 * @param entry the MFT entry
+	 * @throws IOException if the entry is not intact
+	 */
+	private void applyFixups(ByteBuffer entry) throws IOException {
+		if (entry.getInt(0) != EntryView.FILE_SIGNATURE) {
+			throw new IOException("The first MFT entry of " + image + " does not have a FILE signature.");
+		}
+		int updateSequenceOffset = Short.toUnsignedInt(entry.getShort(0x04));
+		int updateSequenceCount = Short.toUnsignedInt(entry.getShort(0x06)); // the update sequence number followed by the original bytes of every stride
+		if (updateSequenceOffset + updateSequenceCount * 2 > entrySize || (updateSequenceCount - 1) * FIXUP_STRIDE > entrySize) {
+			throw new IOException("The update sequence of the first MFT entry of " + image + " is damaged.");
+		}
+		short updateSequenceNumber = entry.getShort(updateSequenceOffset);
+		for (int ii = 1; ii < updateSequenceCount; ii++) {
+			int position = ii * FIXUP_STRIDE - 2;
+			if (entry.getShort(position) != updateSequenceNumber) {
+				throw new IOException("The first MFT entry of " + image + " was not completely written.");
+			}
+			entry.putShort(position, entry.getShort(updateSequenceOffset + ii * 2));
+		}
+	}
+
+	/**
+	 * Decodes the run list of the unnamed non-resident $DATA attribute of the first MFT entry into the extents of the MFT.
+	 * Every run starts with a header byte holding the size of its length (low nibble) and the size of its cluster offset (high nibble),
+	 * the cluster offset is signed and relative to the previous run, runs without a cluster offset are sparse.
+	 * @param entry the first MFT entry, with its fixups applied
+	 * @throws IOException if the entry has no run list for the whole MFT
+	 */
+	private void readDataRuns(ByteBuffer entry) throws IOException {
+		int attribute = Short.toUnsignedInt(entry.getShort(0x14));
+		while (attribute + 8 <= entrySize && entry.getInt(attribute) != END_OF_ATTRIBUTES) {
+			int attributeSize = entry.getInt(attribute + 4);
+			if (attributeSize <= 0 || attribute + attributeSize > entrySize) {
+				break;
+			}
+			if (entry.getInt(attribute) == DATA_ATTRIBUTE && entry.get(attribute + 8) == 1 && entry.get(attribute + 9) == 0) { // non-resident and unnamed
+				mftSize = entry.getLong(attribute + 0x30);
+				int run = attribute + Short.toUnsignedInt(entry.getShort(attribute + 0x20));
+				int attributeEnd = attribute + attributeSize;
+				long logicalStart = 0;
+				long cluster = 0;
+				while (run < attributeEnd && entry.get(run) != 0) {
+					int header = Byte.toUnsignedInt(entry.get(run));
+					int lengthSize = header & 0x0F;
+					int offsetSize = header >> 4;
+					if (lengthSize == 0 || lengthSize > 8 || offsetSize > 8 || run + 1 + lengthSize + offsetSize > attributeEnd) {
+						throw new IOException("The run list of the MFT of " + image + " is damaged.");
+					}
+					long length = readLittleEndian(entry, run + 1, lengthSize, false) * clusterSize;
+					long physicalStart = -1;
+					if (offsetSize > 0) {
+						cluster += readLittleEndian(entry, run + 1 + lengthSize, offsetSize, true);
+						physicalStart = cluster * clusterSize;
+					}
+					addExtent(logicalStart, physicalStart, length);
+					logicalStart += length;
+					run += 1 + lengthSize + offsetSize;
+				}
+				if (logicalStart < mftSize) {
+					throw new IOException("The run list of the MFT of " + image + " does not cover the whole MFT, MFTs continued in an attribute list are not supported.");
+				}
+				return;
+			}
+			attribute += attributeSize;
+		}
+		throw new IOException("The first MFT entry of " + image + " has no run list for the MFT.");
+	}
+
+	/**
+	 * @param buffer little endian buffer
+	 * @param position the position of the number
+	 * @param size the size of the number in bytes, from 1 to 8
+	 * @param signed whether the number should be sign extended
+	 * @return the number
+	 */
+	private static long readLittleEndian(ByteBuffer buffer, int position, int size, boolean signed) {
+		long value = 0;
+		for (int ii = size - 1; ii >= 0; ii--) {
+			value = (value << 8) | Byte.toUnsignedInt(buffer.get(position + ii));
+		}
+		if (signed && size < 8) {
+			value = value << (64 - size * 8) >> (64 - size * 8);
+		}
+		return value;
+	}
+
+	/**
+	 * @param logicalStart offset within the MFT of the extent
+	 * @param physicalStart offset within the volume of the extent, -1 for a sparse extent
+	 * @param length length of the extent
+	 */
+	private void addExtent(long logicalStart, long physicalStart, long length) {
+		int extents = lengths.length;
+		logicalStarts = Arrays.copyOf(logicalStarts, extents + 1);
+		physicalStarts = Arrays.copyOf(physicalStarts, extents + 1);
+		lengths = Arrays.copyOf(lengths, extents + 1);
+		logicalStarts[extents] = logicalStart;
+		physicalStarts[extents] = physicalStart;
+		lengths[extents] = length;
+	}
+
+	/**
+	 * Reads a number of bytes from a position in the MFT into the start of the buffer, reading from every extent the bytes span in order.
+	 * Sparse extents are read as zeroes.
+	 * @param channel a channel on the volume image
+	 * @param buffer the buffer to read into
+	 * @param position the position in the MFT to read from
+	 * @param length the amount of bytes to read
+	 * @throws IOException
+	 */
+	void readMFT(FileChannel channel, ByteBuffer buffer, long position, int length) throws IOException {
+		buffer.clear().limit(length);
+		int extent = Arrays.binarySearch(logicalStarts, position);
+		if (extent < 0) {
+			extent = -extent - 2; // the extent that starts before the position
+		}
+		while (buffer.hasRemaining()) {
+			long logicalPosition = position + buffer.position();
+			while (extent < lengths.length && logicalPosition >= logicalStarts[extent] + lengths[extent]) {
+				extent++;
+			}
+			if (extent < 0 || extent >= lengths.length) {
+				throw new EOFException("Byte " + logicalPosition + " of the MFT is not on the volume " + image);
+			}
+			long extentOffset = logicalPosition - logicalStarts[extent];
+			int piece = (int) Math.min(buffer.remaining(), lengths[extent] - extentOffset);
+			int pieceEnd = buffer.position() + piece;
+			if (physicalStarts[extent] == -1) {
+				while (buffer.position() < pieceEnd) {
+					buffer.put((byte) 0);
+				}
+			}
+			else {
+				buffer.limit(pieceEnd);
+				while (buffer.hasRemaining()) {
+					if (channel.read(buffer, physicalStarts[extent] + extentOffset + buffer.position() - (pieceEnd - piece)) == -1) {
+						throw new EOFException("Unexpected end of the volume " + image + " at byte " + (physicalStarts[extent] + extentOffset));
+					}
+				}
+				buffer.limit(length);
+			}
+		}
+	}
+
+	/**
+	 * @return the size of an MFT entry in bytes, as specified by the boot sector
+	 */
+	public int getEntrySize() {
+		return entrySize;
+	}
+
+	/**
+	 * @return the size of the MFT in bytes
+	 */
+	public long getMFTSize() {
+		return mftSize;
+	}
+
+	/**
+	 * @return the amount of extents the MFT is fragmented into
+	 */
+	public int getExtentCount() {
+		return lengths.length;
+	}
+
+}
@@ -0,0 +1,201 @@
+/**
+ *
+ */
+package timeAnalyser;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * @author Jelle Bouma
+ *
+ */
+public class NTFSVolumeTest {
+
+	static final int CLUSTER_SIZE = 1024;
+
+	/**
+	 * Builds a small volume image with 512 byte sectors, 1024 byte clusters and entries, and an MFT of 6 entries in two extents:
+	 * entries 0 to 2 at cluster 10 and entries 3 to 5 at cluster 4, so the second run has a negative cluster offset.
+	 * @param updateSequenceIntact whether the update sequence number at the end of the sectors of the first entry is intact
+	 * @return the image file
+	 * @throws IOException
+	 */
+	private static File createImage(boolean updateSequenceIntact) throws IOException {
+		ByteBuffer image = ByteBuffer.allocate(16 * CLUSTER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		image.position(3);
+		image.put("NTFS    ".getBytes("US-ASCII"));
+		image.putShort(0x0B, (short) 512);
+		image.put(0x0D, (byte) 2);
+		image.putLong(0x30, 10);
+		image.put(0x40, (byte) 1);
+		int entry = 10 * CLUSTER_SIZE;
+		image.putInt(entry, 0x454C4946); // FILE
+		image.putShort(entry + 0x04, (short) 0x30); // update sequence offset
+		image.putShort(entry + 0x06, (short) 3); // update sequence number and two sectors
+		image.putShort(entry + 0x30, (short) 1); // update sequence number, the original bytes of the sectors are 0
+		image.putShort(entry + 510, (short) 1);
+		image.putShort(entry + 1022, (short) (updateSequenceIntact ? 1 : 2));
+		image.putShort(entry + 0x14, (short) 0x38); // first attribute
+		int attribute = entry + 0x38;
+		image.putInt(attribute, 0x80); // $DATA
+		image.putInt(attribute + 4, 0x48);
+		image.put(attribute + 8, (byte) 1); // non-resident
+		image.putShort(attribute + 0x20, (short) 0x40); // run list offset
+		image.putLong(attribute + 0x30, 6 * CLUSTER_SIZE); // data size
+		image.position(attribute + 0x40);
+		image.put(new byte[] {0x11, 3, 10, 0x11, 3, (byte) 0xFA, 0}); // 3 clusters at 10, 3 clusters at 10 - 6
+		image.putInt(attribute + 0x48, 0xFFFFFFFF);
+		File file = File.createTempFile("volume", ".img");
+		file.deleteOnExit();
+		Files.write(file.toPath(), image.array());
+		return file;
+	}
+
+	/**
+	 * Builds a volume image with 1024 byte clusters and entries, of which every byte outside the boot sector and the first entry holds its position in a pattern,
+	 * and an MFT of 8 entries in four extents: entries 0 and 1 at cluster 10, entries 2 to 4 at cluster 4 (a negative cluster offset),
+	 * entry 5 in a sparse run, and entries 6 and 7 at cluster 20 (relative to cluster 4, as a sparse run has no cluster).
+	 * @return the image file
+	 * @throws IOException
+	 */
+	private static File createFragmentedImage() throws IOException {
+		ByteBuffer image = ByteBuffer.allocate(24 * CLUSTER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		for (int ii = 0; ii < image.capacity(); ii++) {
+			image.put(ii, (byte) (ii * 31 + ii / 251));
+		}
+		Arrays.fill(image.array(), 0, CLUSTER_SIZE, (byte) 0);
+		Arrays.fill(image.array(), 10 * CLUSTER_SIZE, 11 * CLUSTER_SIZE, (byte) 0);
+		image.position(3);
+		image.put("NTFS    ".getBytes("US-ASCII"));
+		image.putShort(0x0B, (short) 512);
+		image.put(0x0D, (byte) 2);
+		image.putLong(0x30, 10);
+		image.put(0x40, (byte) 1);
+		int entry = 10 * CLUSTER_SIZE;
+		image.putInt(entry, 0x454C4946); // FILE
+		image.putShort(entry + 0x04, (short) 0x30); // update sequence offset
+		image.putShort(entry + 0x06, (short) 3); // update sequence number and two sectors
+		image.putShort(entry + 0x30, (short) 1);
+		image.putShort(entry + 510, (short) 1);
+		image.putShort(entry + 1022, (short) 1);
+		image.putShort(entry + 0x14, (short) 0x38); // first attribute
+		int attribute = entry + 0x38;
+		image.putInt(attribute, 0x80); // $DATA
+		image.putInt(attribute + 4, 0x50);
+		image.put(attribute + 8, (byte) 1); // non-resident
+		image.putShort(attribute + 0x20, (short) 0x40); // run list offset
+		image.putLong(attribute + 0x30, 8 * CLUSTER_SIZE); // data size
+		image.position(attribute + 0x40);
+		image.put(new byte[] {0x11, 2, 10, 0x11, 3, (byte) 0xFA, 0x01, 1, 0x11, 2, 16, 0}); // 2 clusters at 10, 3 at 10 - 6, 1 sparse, 2 at 4 + 16
+		image.putInt(attribute + 0x50, 0xFFFFFFFF);
+		File file = File.createTempFile("volume", ".img");
+		file.deleteOnExit();
+		Files.write(file.toPath(), image.array());
+		return file;
+	}
+
+	/**
+	 * @param image the image made by createFragmentedImage
+	 * @return the MFT of the image, put together from its clusters in the order of the run list
+	 * @throws IOException
+	 */
+	private static byte[] getFragmentedMFT(File image) throws IOException {
+		byte[] volume = Files.readAllBytes(image.toPath());
+		byte[] mft = new byte[8 * CLUSTER_SIZE];
+		int[] clusters = {10, 11, 4, 5, 6, -1, 20, 21}; // the cluster of every entry, -1 for the sparse entry
+		for (int ii = 0; ii < clusters.length; ii++) {
+			if (clusters[ii] != -1) {
+				System.arraycopy(volume, clusters[ii] * CLUSTER_SIZE, mft, ii * CLUSTER_SIZE, CLUSTER_SIZE);
+			}
+		}
+		return mft;
+	}
+
+	/**
+	 * Test method for {@link timeAnalyser.NTFSVolume#NTFSVolume(java.io.File)}.
+	 * @throws IOException
+	 */
+	@Test
+	public void bootSectorAndRunList_Should_GiveTheExtentsOfTheMFT() throws IOException {
+		File image = createImage(true);
+		assertTrue(NTFSVolume.isNTFSImage(image));
+		NTFSVolume volume = new NTFSVolume(image);
+		assertEquals("The entry size should be read from the boot sector.", 1024, volume.getEntrySize());
+		assertEquals("The MFT size should be read from the $DATA attribute.", 6 * CLUSTER_SIZE, volume.getMFTSize());
+		assertEquals("Every run of the run list should be an extent.", 2, volume.getExtentCount());
+	}
+
+	/**
+	 * Test method for {@link timeAnalyser.NTFSVolume#readMFT(java.nio.channels.FileChannel, java.nio.ByteBuffer, long, int)}.
+	 * @throws IOException
+	 */
+	@Test
+	public void fragmentedMFT_Should_BeReadInTheOrderOfItsExtents() throws IOException {
+		File image = createFragmentedImage();
+		NTFSVolume volume = new NTFSVolume(image);
+		assertEquals(4, volume.getExtentCount());
+		assertEquals(8 * CLUSTER_SIZE, volume.getMFTSize());
+		byte[] expected = getFragmentedMFT(image);
+		ByteBuffer buffer = ByteBuffer.allocate(expected.length);
+		try (FileChannel channel = FileChannel.open(image.toPath(), StandardOpenOption.READ)) {
+			volume.readMFT(channel, buffer, 0, expected.length);
+			assertArrayEquals("The whole MFT should be read byte for byte, with zeroes for the sparse run.", expected, buffer.array());
+			int[][] reads = {{1500, 4000}, {2 * CLUSTER_SIZE - 1, 2}, {5 * CLUSTER_SIZE - 10, CLUSTER_SIZE + 20}, {7 * CLUSTER_SIZE + 3, CLUSTER_SIZE - 3}}; // position and length of reads across extents
+			for (int[] read : reads) {
+				volume.readMFT(channel, buffer, read[0], read[1]);
+				assertArrayEquals("Reading " + read[1] + " bytes from " + read[0], Arrays.copyOfRange(expected, read[0], read[0] + read[1]), Arrays.copyOf(buffer.array(), read[1]));
+			}
+		}
+	}
+
+	/**
+	 * Test method for {@link timeAnalyser.NTFSVolume#readMFT(java.nio.channels.FileChannel, java.nio.ByteBuffer, long, int)}.
+	 * @throws IOException
+	 */
+	@Test(expected = IOException.class)
+	public void readBeyondTheMFT_Should_Fail() throws IOException {
+		File image = createFragmentedImage();
+		NTFSVolume volume = new NTFSVolume(image);
+		try (FileChannel channel = FileChannel.open(image.toPath(), StandardOpenOption.READ)) {
+			volume.readMFT(channel, ByteBuffer.allocate(2 * CLUSTER_SIZE), 7 * CLUSTER_SIZE, 2 * CLUSTER_SIZE);
+		}
+	}
+
+	/**
+	 * Test method for {@link timeAnalyser.NTFSVolume#NTFSVolume(java.io.File)}.
+	 * @throws IOException
+	 */
+	@Test(expected = IOException.class)
+	public void tornFirstEntry_Should_NotBeRead() throws IOException {
+		new NTFSVolume(createImage(false));
+	}
+
+	/**
+	 * Test method for {@link timeAnalyser.NTFSVolume#isNTFSImage(java.io.File)}.
+	 * @throws IOException
+	 */
+	@Test
+	public void mftFile_ShouldNot_BeSeenAsVolumeImage() throws IOException {
+		File mft = File.createTempFile("mft", ".bin");
+		mft.deleteOnExit();
+		byte[] entry = new byte[1024];
+		entry[0] = 'F';
+		entry[1] = 'I';
+		entry[2] = 'L';
+		entry[3] = 'E';
+		Files.write(mft.toPath(), entry);
+		assertFalse(NTFSVolume.isNTFSImage(mft));
+	}
+
+}
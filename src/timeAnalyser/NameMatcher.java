@@ -0,0 +1,87 @@
+package timeAnalyser;
+
+import java.util.HashSet;
+import java.util.regex.Pattern;
+
+/**
+ *
+ */
+
+/**
+ * Matches file names against a list of names and glob patterns, ignoring case like {@link String#equalsIgnoreCase(String)} does.
+ * Plain names are looked up in a hash set of case-folded names, so the cost of a match does not grow with the amount of names.
+ * Names with the wildcards ``*'' (any amount of characters) and ``?'' (exactly one character), such as ``*.docx'' or ``invoice_??.pdf'', are compiled into a single pattern.
+ * @author Jelle Bouma
+ *
+ */
+public class NameMatcher {
+
+	private HashSet<String> names = new HashSet<>();
+	private Pattern globs;
+
+	/**
+	 * @param patterns the file names and glob patterns to match
+	 */
+	public NameMatcher(String[] patterns) {
+		StringBuilder globPattern = new StringBuilder();
+		for (String pattern : patterns) {
+			if (pattern.indexOf('*') == -1 && pattern.indexOf('?') == -1) {
+				names.add(fold(pattern));
+			}
+			else {
+				if (globPattern.length() > 0) {
+					globPattern.append('|');
+				}
+				globPattern.append(globToRegex(pattern));
+			}
+		}
+		if (globPattern.length() > 0) {
+			globs = Pattern.compile(globPattern.toString(), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE | Pattern.DOTALL);
+		}
+	}
+
+	/**
+	 * @param name a file name
+	 * @return if the file name equals one of the names, ignoring case, or matches one of the glob patterns
+	 */
+	public boolean matches(String name) {
+		return names.contains(fold(name)) || (globs != null && globs.matcher(name).matches());
+	}
+
+	/**
+	 * Folds the case of every character the same way {@link String#equalsIgnoreCase(String)} compares them, so that two names are equal after folding if and only if they are equal ignoring case.
+	 * @param name a file name
+	 * @return the case-folded file name
+	 */
+	static String fold(String name) {
+		char[] folded = new char[name.length()];
+		for (int ii = 0; ii < folded.length; ii++) {
+			folded[ii] = Character.toLowerCase(Character.toUpperCase(name.charAt(ii)));
+		}
+		return new String(folded);
+	}
+
+	/**
+	 * @param glob a glob pattern with the wildcards ``*'' and ``?''
+	 * @return a regular expression matching the same names as the glob pattern
+	 */
+	private static String globToRegex(String glob) {
+		StringBuilder regex = new StringBuilder("(?:");
+		int literalStart = 0;
+		for (int ii = 0; ii < glob.length(); ii++) {
+			char character = glob.charAt(ii);
+			if (character == '*' || character == '?') {
+				if (literalStart < ii) {
+					regex.append(Pattern.quote(glob.substring(literalStart, ii)));
+				}
+				regex.append(character == '*' ? ".*" : ".");
+				literalStart = ii + 1;
+			}
+		}
+		if (literalStart < glob.length()) {
+			regex.append(Pattern.quote(glob.substring(literalStart)));
+		}
+		return regex.append(')').toString();
+	}
+
+}
@@ -0,0 +1,242 @@
+package timeAnalyser;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ *
+ */
+
+/**
+ * A pool of file names which keeps every distinct name once and refers to it by an integer id.
+ * Names that repeat throughout an MFT, such as ``desktop.ini'' and ``Thumbs.db'', then take four bytes per file instead of a String each.
+ * The names are kept one after the other in a single byte array: names of only ASCII characters take a byte per character, other names two bytes per character (UTF-16LE).
+ * Names are found by an open addressing hash table of ids, using the hash code String would give the name, so no String is made to look up a decoded name.
+ * Names may be added by several threads at once. Names are only ever appended and the arrays are volatile, so a name can be read without taking the lock, even while the arrays are being grown.
+ * @author Jelle Bouma
+ *
+ */
+public class NamePool {
+
+	static final int EMPTY = 0; // the id of the empty name
+	static final int WIDE = 1 << 31; // set in the length of names that are stored with two bytes per character
+	static final int MAX_BYTES = Integer.MAX_VALUE - 8; // the most bytes of names that fit in the byte array
+
+	private volatile byte[] bytes = new byte[1 << 12];
+	private int bytesEnd = 0;
+	private volatile int[] offsets = new int[1 << 8]; // the offset in the byte array of every name
+	private volatile int[] lengths = new int[1 << 8]; // the amount of characters of every name, with WIDE set for names of two bytes per character
+	private int[] hashes = new int[1 << 8];
+	private int[] table = new int[1 << 9]; // the id of the name in every slot plus one, 0 for an empty slot
+	private int size = 1; // the empty name is always in the pool
+
+	/**
+	 * Adds a name to the pool, unless it is in the pool already.
+	 * @param name a file name
+	 * @return the id of the name
+	 */
+	public int intern(String name) {
+		char[] chars = name.toCharArray();
+		return intern(chars, 0, chars.length, name.hashCode());
+	}
+
+	/**
+	 * Adds a name to the pool, unless it is in the pool already.
+	 * @param chars array holding the characters of the name
+	 * @param start the position of the first character of the name
+	 * @param length the amount of characters of the name
+	 * @return the id of the name
+	 */
+	public int intern(char[] chars, int start, int length) {
+		int hash = 0;
+		for (int ii = start; ii < start + length; ii++) {
+			hash = 31 * hash + chars[ii];
+		}
+		return intern(chars, start, length, hash);
+	}
+
+	/**
+	 * @param chars array holding the characters of the name
+	 * @param start the position of the first character of the name
+	 * @param length the amount of characters of the name
+	 * @param hash the hash code of the name, as String would give it
+	 * @return the id of the name
+	 */
+	private synchronized int intern(char[] chars, int start, int length, int hash) {
+		if (length == 0) {
+			return EMPTY;
+		}
+		int mask = table.length - 1;
+		int slot = mix(hash) & mask;
+		while (table[slot] != 0) {
+			int id = table[slot] - 1;
+			if (hashes[id] == hash && equals(id, chars, start, length)) {
+				return id;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return add(chars, start, length, hash, slot);
+	}
+
+	/**
+	 * @param hash a hash code
+	 * @return the hash code with its high bits spread over its low bits, which choose the slot
+	 */
+	private static int mix(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * @param id the id of a name in the pool
+	 * @param chars array holding the characters of a name
+	 * @param start the position of the first character of the name
+	 * @param length the amount of characters of the name
+	 * @return if the name with the id equals the name in the array
+	 */
+	private boolean equals(int id, char[] chars, int start, int length) {
+		if ((lengths[id] & ~WIDE) != length) {
+			return false;
+		}
+		byte[] bytes = this.bytes;
+		int offset = offsets[id];
+		boolean wide = (lengths[id] & WIDE) != 0;
+		for (int ii = 0; ii < length; ii++) {
+			if (charAt(bytes, offset, wide, ii) != chars[start + ii]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param bytes the byte array of the pool
+	 * @param offset the offset of a name in the byte array
+	 * @param wide whether the name is stored with two bytes per character
+	 * @param index the index of the character in the name
+	 * @return the character
+	 */
+	private static char charAt(byte[] bytes, int offset, boolean wide, int index) {
+		if (wide) {
+			return (char) ((bytes[offset + index * 2] & 0xFF) | (bytes[offset + index * 2 + 1] & 0xFF) << 8);
+		}
+		return (char) (bytes[offset + index] & 0xFF);
+	}
+
+	/**
+	 * Adds a name that is not in the pool yet.
+	 * @param chars array holding the characters of the name
+	 * @param start the position of the first character of the name
+	 * @param length the amount of characters of the name
+	 * @param hash the hash code of the name
+	 * @param slot the empty slot of the table for the name
+	 * @return the id of the name
+	 */
+	private int add(char[] chars, int start, int length, int hash, int slot) {
+		boolean wide = false;
+		for (int ii = start; ii < start + length && !wide; ii++) {
+			wide = chars[ii] > 0x7F;
+		}
+		int byteLength = wide ? length * 2 : length;
+		if (bytesEnd + byteLength > bytes.length) {
+			if ((long) bytesEnd + byteLength > MAX_BYTES) {
+				throw new IllegalStateException("The file names take more than " + MAX_BYTES + " bytes.");
+			}
+			bytes = Arrays.copyOf(bytes, (int) Math.min(MAX_BYTES, Math.max((long) bytesEnd + byteLength, 2L * bytes.length)));
+		}
+		byte[] bytes = this.bytes;
+		for (int ii = 0; ii < length; ii++) {
+			char character = chars[start + ii];
+			if (wide) {
+				bytes[bytesEnd + ii * 2] = (byte) character;
+				bytes[bytesEnd + ii * 2 + 1] = (byte) (character >> 8);
+			}
+			else {
+				bytes[bytesEnd + ii] = (byte) character;
+			}
+		}
+		int id = size;
+		if (id == offsets.length) {
+			hashes = Arrays.copyOf(hashes, id * 2);
+			lengths = Arrays.copyOf(lengths, id * 2);
+			offsets = Arrays.copyOf(offsets, id * 2);
+		}
+		offsets[id] = bytesEnd;
+		lengths[id] = wide ? length | WIDE : length;
+		hashes[id] = hash;
+		bytesEnd += byteLength;
+		table[slot] = id + 1;
+		size++;
+		if (size * 2 > table.length) {
+			rehash();
+		}
+		return id;
+	}
+
+	/**
+	 * Doubles the table, keeping it at most half full.
+	 */
+	private void rehash() {
+		table = new int[table.length * 2];
+		int mask = table.length - 1;
+		for (int id = 1; id < size; id++) {
+			int slot = mix(hashes[id]) & mask;
+			while (table[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			table[slot] = id + 1;
+		}
+	}
+
+	/**
+	 * @param id the id of a name in the pool
+	 * @return the name
+	 */
+	public String getName(int id) {
+		int length = lengths[id] & ~WIDE;
+		if (length == 0) {
+			return "";
+		}
+		byte[] bytes = this.bytes;
+		int offset = offsets[id];
+		if ((lengths[id] & WIDE) == 0) {
+			return new String(bytes, offset, length, StandardCharsets.ISO_8859_1);
+		}
+		char[] chars = new char[length];
+		for (int ii = 0; ii < length; ii++) {
+			chars[ii] = charAt(bytes, offset, true, ii);
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * @param id the id of a name in the pool
+	 * @return the amount of characters of the name
+	 */
+	public int getLength(int id) {
+		return lengths[id] & ~WIDE;
+	}
+
+	/**
+	 * Copies the characters of a name into an array, without making a String of it.
+	 * @param id the id of a name in the pool
+	 * @param destination the array to copy the characters into
+	 * @param destinationStart the position in the array of the first character
+	 */
+	public void getChars(int id, char[] destination, int destinationStart) {
+		int length = lengths[id] & ~WIDE;
+		boolean wide = (lengths[id] & WIDE) != 0;
+		byte[] bytes = this.bytes;
+		int offset = offsets[id];
+		for (int ii = 0; ii < length; ii++) {
+			destination[destinationStart + ii] = charAt(bytes, offset, wide, ii);
+		}
+	}
+
+	/**
+	 * @return the amount of distinct names in the pool, including the empty name
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+}
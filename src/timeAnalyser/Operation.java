@@ -6,6 +6,8 @@ package timeAnalyser;
 
 /**
  * A file operation, more specifically: the way the file operation changes time-stamps.
+ * Everything about the operation that depends only on a marking is worked out for all 256 markings when the operation is constructed,
+ * and the roundings and comparisons between pairs of time-stamps that the operation requires are compiled into bitmasks, so matching an operation to the signature of the time-stamps takes a few bitwise operations.
  * 
  * @author Jelle Bouma
  *
@@ -21,6 +23,13 @@ public class Operation {
 	boolean isCombiningOperation = false;
 	Marking[] splitMarkings;
 	boolean isCreatingOperation = true;
+	private final boolean[] hasDurationResult = new boolean[Marking.MARKINGS]; // for every marking, if the operation matches a duration of time
+	private final boolean[] hasRangeResult = new boolean[Marking.MARKINGS]; // for every marking, if the operation matches a range of time
+	private final boolean[] isCombiningOperationFor = new boolean[Marking.MARKINGS]; // for every marking, if the operation has time-stamps from two different files
+	private int requiredRoundings; // the rounding bit of every time-stamp change, as in TimestampSignature
+	private int notEarlierPairs; // the pairs of time-stamps of which the first may not be earlier than the second
+	private int notLaterPairs; // the pairs of time-stamps of which the first may not be later than the second
+	private int differentPairs; // the pairs of time-stamps that may not be equal
 	
 	/**
 	 * Constructs a file operation from its name and array of time-stamp changes, the operation can not transfer time-stamps between volumes and applies to files and directories.
@@ -38,6 +47,8 @@ public class Operation {
 		if (isCombiningOperation) {
 			calculateSplitMarkings();
 		}
+		calculateMarkingResults();
+		calculateConstraints();
 	}
 	
 	/**
@@ -77,39 +88,79 @@ public class Operation {
 	 * @return if the time-stamps from the file meta-data match this operation for the provided marking.
 	 */
 	public boolean matches(FileMetadata metadata, Marking progressMarking) {
-		if ((metadata.isDirectory() && appliesToDirectories == -1) || (!metadata.isDirectory() && appliesToDirectories == 1)) { // check if the file is a directory and if this operation is available to it.
+		return canMatch(metadata.isDirectory(), progressMarking) && matchesTimestamps(metadata.getTimestamps().getSignature(), progressMarking.getBitmap());
+	}
+	
+	/**
+	 * Checks the part of matches that does not depend on the time-stamps.
+	 * @param isDirectory if the file meta-data describes a directory
+	 * @param progressMarking marking which indicates which time-stamps have been matched already
+	 * @return if the operation applies to the file or directory and can be matched to a time for the marking
+	 */
+	boolean canMatch(boolean isDirectory, Marking progressMarking) {
+		if ((isDirectory && appliesToDirectories == -1) || (!isDirectory && appliesToDirectories == 1)) { // check if the file is a directory and if this operation is available to it.
 			return false;
 		}
 		if ((!hasCopying() && progressMarking.eclipses(operationResult)) || (hasCopying() && progressMarking.eclipses(copied))) { // checks if this operation can be matched to a time for the current marking
 			return false;
 		}
-		Timestamp[] timestamps = metadata.getTimestamps().getAll();
+		return true;
+	}
+	
+	/**
+	 * Checks the part of matches that depends on the time-stamps: if every unmarked time-stamp can match its time-stamp change and every pair of unmarked time-stamps meets its constraints.
+	 * @param signature the relations between the time-stamps of the file meta-data
+	 * @param progressMarking the bitmap of the marking which indicates which time-stamps have been matched already
+	 * @return if the time-stamps match this operation for the marking
+	 */
+	boolean matchesTimestamps(TimestampSignature signature, int progressMarking) {
+		if ((requiredRoundings & TimestampSignature.UNMARKED_ROUNDINGS[progressMarking] & ~signature.roundings) != 0) { // checks if the time-stamps can match the time-stamp changes (have proper rounding)
+			return false;
+		}
+		return (((notEarlierPairs & signature.earlier) | (notLaterPairs & signature.later) | (differentPairs & signature.equal)) & TimestampSignature.UNMARKED_PAIRS[progressMarking]) == 0;
+	}
+	
+	/**
+	 * Compiles the roundings of the time-stamp changes and the comparisons between pairs of time-stamps that this operation requires into bitmasks, which are matched to a TimestampSignature.
+	 * This method should only be called once per file operation.
+	 */
+	private void calculateConstraints() {
 		for (int ii = 0; ii < effect.length; ii++) {
-			if (!effect[ii].match(timestamps[ii]) && !progressMarking.isMarked(ii)) { // checks if the time-stamp can match the time-stamp change (has proper rounding)
-				return false;
-			}
+			requiredRoundings |= 1 << (ii * 4 + effect[ii].getRoundingClass());
 		}
 		for (int ii = 0; ii < effect.length - 1; ii++) {
-			for (int jj = ii + 1; jj < effect.length; jj++) { // compare every pair of time-stamps and time-stamp changes
+			for (int jj = ii + 1; jj < effect.length; jj++) { // compare every pair of time-stamp changes
+				int pair = TimestampSignature.PAIRS[ii][jj];
 				int changeComparison = effect[ii].compare(effect[jj]);
-				int timeComparison = timestamps[ii].compare(timestamps[jj]);
-				if (!progressMarking.isMarked(ii) && !progressMarking.isMarked(jj)) {
-					if ((changeComparison > 0 && timeComparison < 0) || (changeComparison < 0 && timeComparison > 0)) { // check if the time-stamps have to be bigger/smaller
-						return false;
-					}
-					if (effect[ii] == effect[jj] && effect[ii].isAlwaysSelfEquivalent() && timeComparison != 0) { // check if the time-stamps should be equal
-						return false;
-					}
-					if (!effect[ii].canBeEquivalentWith(effect[jj]) && timeComparison == 0) { // check if the time-stamps are allowed to be equal
-						return false;
-					}
-					if(jj - ii == 4 && effect[ii].sameTypeEquivalenceWith(effect[jj]) && timeComparison != 0) { // check if the time-stamps should be equal if they have the same type
-						return false;
-					}
+				if (changeComparison > 0) { // the time-stamps have to be bigger/smaller
+					notEarlierPairs |= pair;
+				}
+				if (changeComparison < 0) {
+					notLaterPairs |= pair;
+				}
+				if ((effect[ii] == effect[jj] && effect[ii].isAlwaysSelfEquivalent()) // the time-stamps should be equal
+						|| (jj - ii == 4 && effect[ii].sameTypeEquivalenceWith(effect[jj]))) { // the time-stamps should be equal if they have the same type
+					notEarlierPairs |= pair;
+					notLaterPairs |= pair;
+				}
+				if (!effect[ii].canBeEquivalentWith(effect[jj])) { // the time-stamps are not allowed to be equal
+					differentPairs |= pair;
 				}
 			}
 		}
-		return true;
+	}
+	
+	/**
+	 * Works out for every marking if this operation matches a duration or a range and if it combines time-stamps from two files.
+	 * This method should only be called once per file operation, after its markings have been calculated.
+	 */
+	private void calculateMarkingResults() {
+		for (int bitmap = 0; bitmap < Marking.MARKINGS; bitmap++) {
+			Marking marking = new Marking(bitmap);
+			hasDurationResult[bitmap] = calculateHasDurationResultFor(marking);
+			hasRangeResult[bitmap] = calculateHasRangeResultFor(marking);
+			isCombiningOperationFor[bitmap] = calculateIsCombiningOperationFor(marking);
+		}
 	}
 	
 	public Marking getMarking() {
@@ -152,6 +203,10 @@ public class Operation {
 	 * @return if this file operation will match a duration of time for the marking 
 	 */
 	public boolean hasDurationResultFor(Marking marking) {
+		return hasDurationResult[marking.getBitmap()];
+	}
+	
+	private boolean calculateHasDurationResultFor(Marking marking) {
 		for(int ii = 0; ii < effect.length - 1; ii++) {
 			for(int jj = ii + 1; jj < effect.length; jj++) { 
 				if(!marking.isMarked(ii) && !marking.isMarked(jj) && effect[ii].compare(effect[jj]) != 0 && effect[ii].isOperationResult() && effect[jj].isOperationResult()) {
@@ -168,6 +223,10 @@ public class Operation {
 	 * @return if this file operation will match a range of time for the marking 
 	 */
 	public boolean hasRangeResultFor(Marking marking) {
+		return hasRangeResult[marking.getBitmap()];
+	}
+	
+	private boolean calculateHasRangeResultFor(Marking marking) {
 		if(!hasCopying()) {
 			return false;
 		}
@@ -186,14 +245,14 @@ public class Operation {
 	 * @return an array of two time-stamps which contain the start and end time-stamp for this file operation.
 	 */
 	public Timestamp[] getDuration(FileMetadata metadata, Marking marking) {
-		Timestamp[] timestamps = metadata.getTimestamps().getAll();
+		long[] timestamps = metadata.getTimestamps().getValues();
 		Timestamp[] duration = new Timestamp[2];
 		for (int ii = 0; ii < effect.length; ii++) {
 			for (int jj = ii + 1; jj < effect.length; jj++) { 
 				int latenessDifference = effect[ii].compare(effect[jj]);
 				if (latenessDifference != 0 && !marking.isMarked(ii) && !marking.isMarked(jj) && effect[ii].isOperationResult() && effect[jj].isOperationResult()) {
-					duration[(latenessDifference + 1) / 2] = timestamps[ii];
-					duration[((latenessDifference + 1) / 2) ^ 1] = timestamps[jj];
+					duration[(latenessDifference + 1) / 2] = new Timestamp(timestamps[ii]);
+					duration[((latenessDifference + 1) / 2) ^ 1] = new Timestamp(timestamps[jj]);
 					return duration;
 				}
 			}
@@ -209,23 +268,23 @@ public class Operation {
 	 * @return an array of two time-stamps which contain the start and end time-stamp for the range during which this file operation may have happened.
 	 */
 	public Timestamp[] getRange(FileMetadata metadata) {
-		Timestamp[] timestamps = metadata.getTimestamps().getAll();
-		Timestamp[] range = {new Timestamp(0L), new Timestamp(-1L)};
+		long[] timestamps = metadata.getTimestamps().getValues();
+		long[] range = {0L, -1L};
 		for (int ii = 0; ii < effect.length; ii++) {
 			if (effect[ii].isCopied()) {
-				if(timestamps[ii].compare(range[0]) > 0) {
+				if(Timestamp.compare(timestamps[ii], range[0]) > 0) {
 					range[0] = timestamps[ii];
 				}
 			}
 		}
 		for (int ii = 0; ii < effect.length; ii++) {
 			if (!effect[ii].isCopied()) {
-				if(timestamps[ii].compare(range[0]) > 0 && timestamps[ii].compare(range[1]) < 0) {
+				if(Timestamp.compare(timestamps[ii], range[0]) > 0 && Timestamp.compare(timestamps[ii], range[1]) < 0) {
 					range[1] = timestamps[ii];
 				}
 			}
 		}
-		return range;
+		return new Timestamp[] {new Timestamp(range[0]), new Timestamp(range[1])};
 	}
 	
 	/**
@@ -235,10 +294,10 @@ public class Operation {
 	 * @return an array of two time-stamps which contain the start and end time-stamp for the range during which this file operation may have happened.
 	 */
 	public Timestamp getTime(FileMetadata metadata, Marking marking) {
-		Timestamp[] timestamps = metadata.getTimestamps().getAll();
+		long[] timestamps = metadata.getTimestamps().getValues();
 		for (int ii = 0; ii < effect.length; ii++) {
 			if (effect[ii].isOperationResult() && !marking.isMarked(ii)) {
-				return timestamps[ii];
+				return new Timestamp(timestamps[ii]);
 			}
 		}
 		return null;
@@ -316,6 +375,10 @@ public class Operation {
 	 * @returns if this is a combining operation (has time-stamps from two different files) for the given marking
 	 */
 	public boolean isCombiningOperationFor(Marking marking) {
+		return isCombiningOperationFor[marking.getBitmap()];
+	}
+	
+	private boolean calculateIsCombiningOperationFor(Marking marking) {
 		for (int ii = 0; ii < effect.length; ii++) {
 			for (int jj = ii + 1; jj < effect.length; jj++) {
 				if (!marking.isMarked(ii) && !marking.isMarked(jj) && !effect[ii].isOperationResult() && !effect[jj].isOperationResult() && effect[ii].fromFile() != effect[jj].fromFile()) {
@@ -0,0 +1,130 @@
+package timeAnalyser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ *
+ */
+
+/**
+ * A list of file operations compiled into a table with a row for every marking, for files and for directories.
+ * Every row holds the operations that apply to the kind of file and can be matched to a time for the marking, in the order of the list,
+ * and the class of every operation: operations of the same class have the same effect on meta-data for the marking (see Operation.equalsForMarking).
+ * Only the time-stamps are left to be checked when matching, so the operations of the list are no longer compared with each other for every step of every sequence.
+ * Matches depend only on the signature of the time-stamps, not on their times, so they are kept in a cache from which most files get their matches without matching.
+ * The table is not changed after it has been constructed, so it can be used by several threads at once.
+ * @author Jelle Bouma
+ *
+ */
+public class OperationTable {
+
+	private final Operation[][][] candidates = new Operation[2][Marking.MARKINGS][]; // the operations of every row, indexed by 1 for directories and by marking
+	private final int[][][] classIDs = new int[2][Marking.MARKINGS][]; // the class of every operation of every row
+	private final int[][] amountOfClasses = new int[2][Marking.MARKINGS];
+	private final MatchCache cache = new MatchCache(MatchCache.DEFAULT_CAPACITY);
+
+	/**
+	 * Compiles a list of file operations.
+	 * @param operations the file operations
+	 */
+	public OperationTable(ArrayList<Operation> operations) {
+		for (int directory = 0; directory < 2; directory++) {
+			for (int bitmap = 0; bitmap < Marking.MARKINGS; bitmap++) {
+				Marking marking = new Marking(bitmap);
+				Operation[] row = new Operation[operations.size()];
+				int[] rowClasses = new int[operations.size()];
+				Operation[] representatives = new Operation[operations.size()]; // the first operation of every class
+				int size = 0;
+				int classes = 0;
+				for (Operation operation : operations) {
+					if (operation.canMatch(directory == 1, marking)) {
+						int classID = 0;
+						while (classID < classes && !representatives[classID].equalsForMarking(operation, marking)) {
+							classID++;
+						}
+						if (classID == classes) {
+							representatives[classes++] = operation;
+						}
+						row[size] = operation;
+						rowClasses[size++] = classID;
+					}
+				}
+				candidates[directory][bitmap] = Arrays.copyOf(row, size);
+				classIDs[directory][bitmap] = Arrays.copyOf(rowClasses, size);
+				amountOfClasses[directory][bitmap] = classes;
+			}
+		}
+	}
+
+	/**
+	 * Matches the file operations to file meta-data, putting operations with the same effect on meta-data for the marking in the same list.
+	 * @param metadata the file meta-data
+	 * @param marking marking which indicates which time-stamps have been matched already
+	 * @return the lists of matched operations, in the order in which their first operation is in the list of file operations, followed by an empty list.
+	 * The lists are shared with other files that have the same matches and should not be modified.
+	 */
+	public ArrayList<ArrayList<Operation>> match(FileMetadata metadata, Marking marking) {
+		TimestampSignature signature = metadata.getTimestamps().getSignature();
+		MatchCache.Key key = MatchCache.getKey(signature, marking.getBitmap(), metadata.isDirectory());
+		ArrayList<ArrayList<Operation>> matchedOperations = cache.get(key);
+		if (matchedOperations == null) {
+			matchedOperations = match(signature, marking.getBitmap(), metadata.isDirectory() ? 1 : 0);
+			cache.put(key, matchedOperations);
+		}
+		return matchedOperations;
+	}
+
+	/**
+	 * @param signature the signature of the time-stamps of the file meta-data
+	 * @param bitmap the bitmap of the marking
+	 * @param directory 1 if the file meta-data describes a directory, otherwise 0
+	 * @return the lists of matched operations followed by an empty list
+	 */
+	private ArrayList<ArrayList<Operation>> match(TimestampSignature signature, int bitmap, int directory) {
+		Operation[] row = candidates[directory][bitmap];
+		int[] rowClasses = classIDs[directory][bitmap];
+		ArrayList<ArrayList<Operation>> matchedOperations = new ArrayList<>();
+		int[] listOfClass = null; // the position in matchedOperations of the list of every class, plus one
+		for (int ii = 0; ii < row.length; ii++) {
+			if (row[ii].matchesTimestamps(signature, bitmap)) {
+				if (listOfClass == null) {
+					listOfClass = new int[amountOfClasses[directory][bitmap]];
+				}
+				if (listOfClass[rowClasses[ii]] == 0) {
+					matchedOperations.add(new ArrayList<>());
+					listOfClass[rowClasses[ii]] = matchedOperations.size();
+				}
+				matchedOperations.get(listOfClass[rowClasses[ii]] - 1).add(row[ii]);
+			}
+		}
+		matchedOperations.add(new ArrayList<>());
+		return matchedOperations;
+	}
+
+	/**
+	 * Matches the file operations to file meta-data, without putting them in lists by their effect on meta-data.
+	 * @param metadata the file meta-data
+	 * @param marking marking which indicates which time-stamps have been matched already
+	 * @return the matched operations, in the order of the list of file operations
+	 */
+	public ArrayList<Operation> matchAll(FileMetadata metadata, Marking marking) {
+		int bitmap = marking.getBitmap();
+		TimestampSignature signature = metadata.getTimestamps().getSignature();
+		ArrayList<Operation> matchedOperations = new ArrayList<>();
+		for (Operation operation : candidates[metadata.isDirectory() ? 1 : 0][bitmap]) {
+			if (operation.matchesTimestamps(signature, bitmap)) {
+				matchedOperations.add(operation);
+			}
+		}
+		return matchedOperations;
+	}
+
+	/**
+	 * @return the cache of matches, which counts how many matches were found in it
+	 */
+	public MatchCache getCache() {
+		return cache;
+	}
+
+}
@@ -0,0 +1,94 @@
+package timeAnalyser;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ *
+ */
+
+/**
+ * Optional named parameters of the time-stamp analyser, given as ``--name'' or ``--name=value'' anywhere on the command line.
+ * Named parameters are separated from the positional parameters so that the positional parameters keep their meaning.
+ * @author Jelle Bouma
+ *
+ */
+public class Options {
+
+	private HashMap<String, String> options = new HashMap<>();
+	private String[] positional;
+
+	/**
+	 * Separates the named parameters from the positional parameters.
+	 * @param args the command line arguments
+	 */
+	Options(String[] args) {
+		ArrayList<String> positionalList = new ArrayList<>();
+		for (String arg : args) {
+			if (arg.startsWith("--")) {
+				int separator = arg.indexOf('=');
+				if (separator == -1) {
+					options.put(arg.substring(2), "");
+				}
+				else {
+					options.put(arg.substring(2, separator), arg.substring(separator + 1));
+				}
+			}
+			else {
+				positionalList.add(arg);
+			}
+		}
+		positional = positionalList.toArray(new String[positionalList.size()]);
+	}
+
+	/**
+	 * @return the positional parameters, in the order they were given
+	 */
+	String[] getPositional() {
+		return positional;
+	}
+
+	/**
+	 * @param name the name of the option, without leading dashes
+	 * @return if the option was given
+	 */
+	boolean has(String name) {
+		return options.containsKey(name);
+	}
+
+	/**
+	 * @param name the name of the option, without leading dashes
+	 * @param defaultValue the value to use if the option was not given
+	 * @return the value of the option as a positive integer
+	 */
+	int getInt(String name, int defaultValue) {
+		long parsed = getLong(name, defaultValue);
+		if (parsed > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("--" + name + " needs to be a positive integer of at most " + Integer.MAX_VALUE + ", " + parsed + " is not.");
+		}
+		return (int) parsed;
+	}
+
+	/**
+	 * @param name the name of the option, without leading dashes
+	 * @param defaultValue the value to use if the option was not given
+	 * @return the value of the option as a positive long integer
+	 */
+	long getLong(String name, long defaultValue) {
+		String value = options.get(name);
+		if (value == null) {
+			return defaultValue;
+		}
+		try {
+			long parsed = Long.parseLong(value);
+			if (parsed < 1) {
+				throw new IllegalArgumentException("--" + name + " needs to be a positive integer, " + value + " is not.");
+			}
+			return parsed;
+		}
+		catch(NumberFormatException numberEx) {
+			throw new IllegalArgumentException("--" + name + " needs to be a positive integer, " + value + " is not.");
+		}
+	}
+
+}
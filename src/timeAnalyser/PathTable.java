@@ -0,0 +1,193 @@
+package timeAnalyser;
+
+import java.util.Arrays;
+
+/**
+ *
+ */
+
+/**
+ * The full file paths of the entries of an entry store, kept as a tree of shared prefixes rather than as a String per entry.
+ * The path of an entry is the path of its prefix, which is its parent directory, followed by a backslash and its own name.
+ * Every entry holds nothing but the position of its prefix, the id of its name in the name pool and the length of its path.
+ * A table can be made from an entry store, or from nothing but the parent directories and names of the directories (see MFTReader.readPaths),
+ * so the MFT can be analysed entry by entry with full file paths without holding more than a few integers per entry and the names of the directories.
+ * The path of a file that is not in such a table is rendered from the path of its parent directory and its own name.
+ * The paths are resolved once, iteratively and memoized, so deep directory trees do not overflow the stack and every entry is visited once.
+ * Entries of which the parent is not in the store get an empty path, as do entries on a cycle of parent directories, which only corrupt MFTs have.
+ * A path is only rendered into a String when it is asked for. The table is not changed after it has been resolved, so paths can be rendered on several threads at once.
+ * @author Jelle Bouma
+ *
+ */
+public class PathTable {
+
+	static final int NO_PREFIX = -1; // the prefix of an entry with an empty path
+	static final int UNRESOLVED = -1; // the length of a path that has not been resolved yet
+	static final int RESOLVING = -2; // the length of a path that is being resolved
+
+	private final int[] prefixes; // the position of the prefix of every path, the position itself for the root directory, of which the path is its name
+	private final int[] nameIDs; // the id of the name of every entry in the name pool
+	private final NamePool names; // the name pool of the run, which holds the names of the entries
+	private final int[] lengths; // the amount of characters of every path
+
+	/**
+	 * Resolves the paths of every entry of an entry store.
+	 * @param store the entry store, of which the position of every entry is its index
+	 */
+	public PathTable(EntryStore store) {
+		this(getParents(store), getNameIDs(store), store.size(), store.getNamePool());
+	}
+
+	/**
+	 * Resolves the paths of entries from their parent directories and names.
+	 * @param parents the parent directory of every entry, -1 for entries without meta-data and entries left out of the table. The array is taken over by the table.
+	 * @param nameIDs the id of the name of every entry in the name pool. The array is taken over by the table.
+	 * @param size the amount of entries, the arrays may be longer
+	 * @param names the name pool of the run, which holds the names of the entries
+	 */
+	PathTable(int[] parents, int[] nameIDs, int size, NamePool names) {
+		prefixes = parents;
+		this.nameIDs = nameIDs;
+		this.names = names;
+		lengths = new int[size];
+		Arrays.fill(lengths, UNRESOLVED);
+		for (int ii = 0; ii < size; ii++) {
+			if (prefixes[ii] < 0 || prefixes[ii] >= size) { // no parent, or a parent outside of the MFT
+				prefixes[ii] = NO_PREFIX;
+			}
+		}
+		int[] chain = new int[64]; // the entries of which the path is being resolved, each the prefix of the one before
+		for (int ii = 0; ii < size; ii++) {
+			int depth = 0;
+			int node = ii;
+			while (lengths[node] == UNRESOLVED) { // walk up to a resolved path, the root or the first entry without a prefix
+				if (depth == chain.length) {
+					chain = Arrays.copyOf(chain, depth * 2);
+				}
+				chain[depth++] = node;
+				lengths[node] = RESOLVING;
+				if (prefixes[node] == NO_PREFIX || prefixes[node] == node) {
+					break;
+				}
+				node = prefixes[node];
+			}
+			if (lengths[node] == RESOLVING && node != chain[depth - 1]) { // walked into the chain itself, which is a cycle from node upwards
+				int cycleStart = depth - 1;
+				while (chain[cycleStart] != node) {
+					cycleStart--;
+				}
+				for (int jj = cycleStart; jj < depth; jj++) {
+					prefixes[chain[jj]] = NO_PREFIX;
+					lengths[chain[jj]] = 0;
+				}
+				depth = cycleStart;
+			}
+			else if (lengths[node] == RESOLVING) { // the root or an entry without a prefix
+				lengths[node] = prefixes[node] == NO_PREFIX ? 0 : getNameLength(node);
+				depth--;
+			}
+			while (depth > 0) {
+				int entry = chain[--depth];
+				lengths[entry] = lengths[prefixes[entry]] + 1 + getNameLength(entry);
+			}
+		}
+	}
+
+	/**
+	 * @param store an entry store
+	 * @return the parent directory of every entry of the store, -1 for entries without meta-data and parents beyond the positions of an array
+	 */
+	private static int[] getParents(EntryStore store) {
+		int[] parents = new int[store.size()];
+		for (int ii = 0; ii < parents.length; ii++) {
+			long parent = store.hasMetadata(ii) ? store.getParentID(ii) : -1;
+			parents[ii] = parent > Integer.MAX_VALUE ? -1 : (int) parent;
+		}
+		return parents;
+	}
+
+	/**
+	 * @param store an entry store
+	 * @return the id of the name of every entry of the store
+	 */
+	private static int[] getNameIDs(EntryStore store) {
+		int[] nameIDs = new int[store.size()];
+		for (int ii = 0; ii < nameIDs.length; ii++) {
+			nameIDs[ii] = store.getNameID(ii);
+		}
+		return nameIDs;
+	}
+
+	/**
+	 * @param position the position of an entry
+	 * @return the amount of characters of the name of the entry
+	 */
+	private int getNameLength(int position) {
+		return names.getLength(nameIDs[position]);
+	}
+
+	/**
+	 * Renders the full path of an entry, by copying the names of the entry and its prefixes into the path from back to front.
+	 * @param position the position of an entry
+	 * @return the full file path of the entry, or an empty string if it has none
+	 */
+	public String getPath(int position) {
+		if (prefixes[position] == NO_PREFIX) {
+			return "";
+		}
+		char[] path = new char[lengths[position]];
+		renderPath(position, path, path.length);
+		return new String(path);
+	}
+
+	/**
+	 * Renders the full path of an entry that was left out of the table, such as a file of a table of directories, like getPath renders it for an entry in the table.
+	 * @param position the position of the entry
+	 * @param parent the index of the parent directory of the entry
+	 * @param nameID the id of the name of the entry in the name pool
+	 * @return the full file path of the entry, or an empty string if it has none
+	 */
+	public String getPath(int position, long parent, int nameID) {
+		if (parent < 0 || parent >= lengths.length) { // no parent, or a parent outside of the MFT
+			return "";
+		}
+		int nameLength = names.getLength(nameID);
+		if (parent == position) { // its own parent, like the root directory
+			char[] path = new char[nameLength];
+			names.getChars(nameID, path, 0);
+			return new String(path);
+		}
+		char[] path = new char[lengths[(int) parent] + 1 + nameLength];
+		int end = path.length - nameLength;
+		names.getChars(nameID, path, end);
+		path[--end] = '\\';
+		if (prefixes[(int) parent] != NO_PREFIX) {
+			renderPath((int) parent, path, end);
+		}
+		return new String(path);
+	}
+
+	/**
+	 * Copies the names of an entry and its prefixes into a path from back to front.
+	 * @param position the position of an entry with a path
+	 * @param path the path to copy the names into
+	 * @param end the position in the path after the name of the entry
+	 */
+	private void renderPath(int position, char[] path, int end) {
+		int node = position;
+		while (true) {
+			int nameID = nameIDs[node];
+			end -= names.getLength(nameID);
+			names.getChars(nameID, path, end);
+			if (prefixes[node] == node) { // the root directory
+				break;
+			}
+			path[--end] = '\\';
+			node = prefixes[node];
+			if (prefixes[node] == NO_PREFIX) { // a prefix with an empty path
+				break;
+			}
+		}
+	}
+
+}
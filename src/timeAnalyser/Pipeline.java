@@ -0,0 +1,433 @@
+package timeAnalyser;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *
+ */
+
+/**
+ * Runs the analysis as concurrent stages connected by bounded queues, so that reading, analysing and writing overlap.
+ * The reader stage is whichever thread submits batches of read entries, a dispatcher thread hands the batches to a work-stealing pool of analysers,
+ * and a writer thread writes the analysed entries in the order they were submitted in, holding batches that are analysed early in a reorder buffer.
+ * The analysers split a batch into smaller tasks for as long as other analysers are out of work, so a batch with a few entries that take long to analyse is shared rather than left to one analyser.
+ * The order in which entries are analysed does not change what is written, so the output is the same for any amount of analysers.
+ * A full queue makes the stage before it wait, and no more batches are analysed or waiting to be written at once than fit in a queue, so the reorder buffer holds no more batches than that either.
+ * As a batch keeps its place until it has been written, the batches have to be submitted in the order of their ordinals, or a later batch could take the place the batch the writer waits for needs.
+ * Entries submitted from an entry store are only made into Entry objects by the analysers, so the Entry objects in memory are those of the batches in flight.
+ * @author Jelle Bouma
+ *
+ */
+public class Pipeline {
+
+	static final int DEFAULT_BATCH_SIZE = 256; // the amount of entries handed from stage to stage at once
+	private static final long POLL_INTERVAL = 100; // the most milliseconds the reader stage waits before checking if another stage failed
+	static final int MAX_SURPLUS_TASKS = 2; // an analyser splits its task while it has no more than this amount of tasks queued that other analysers have not taken
+	private static final Batch END = new Batch(null, null, 0, 0, -1); // the last batch, for the dispatcher and then for the writer
+
+	private final int batchSize;
+	private final Filter filter;
+	private final EntryWriter output;
+	private final StageQueue toAnalyse;
+	private final StageQueue toWrite;
+	private final Analyser analyser;
+	private final ForkJoinPool analysers;
+	private final int maxBatchesInAnalysis;
+	private final Semaphore batchesInAnalysis; // a permit for every batch that may be analysed or waiting to be written at once
+	private final Thread dispatcher;
+	private final Thread writer;
+	private volatile Throwable failure;
+	private volatile int maxReorderBufferSize = 0; // only written by the writer thread
+
+	/**
+	 * Constructs a pipeline and starts its analysers, dispatcher and writer threads.
+	 * @param analyser the analyser with the configuration of the run
+	 * @param analysers the amount of analyser threads
+	 * @param queueSize the amount of batches that fit in the queue to the analysers, and in the queue to the writer
+	 * @param batchSize the amount of entries handed from stage to stage at once
+	 * @param output the writer to write the analysed entries to
+	 * @param filter the filter which determines which entries are written
+	 */
+	Pipeline(Analyser analyser, int analysers, int queueSize, int batchSize, EntryWriter output, Filter filter) {
+		this.analyser = analyser;
+		this.batchSize = batchSize;
+		this.output = output;
+		this.filter = filter;
+		toAnalyse = new StageQueue(queueSize);
+		toWrite = new StageQueue(queueSize);
+		this.analysers = new ForkJoinPool(analysers);
+		maxBatchesInAnalysis = queueSize;
+		batchesInAnalysis = new Semaphore(queueSize);
+		dispatcher = startThread(this::dispatch, "dispatcher");
+		writer = startThread(this::write, "writer");
+	}
+
+	/**
+	 * @param stage what the thread runs
+	 * @param name the name of the thread
+	 * @return the started thread, which does not keep the program running when the main thread ends after a failure
+	 */
+	private static Thread startThread(Runnable stage, String name) {
+		Thread thread = new Thread(stage, name);
+		thread.setDaemon(true);
+		thread.start();
+		return thread;
+	}
+
+	/**
+	 * @return the amount of entries handed from stage to stage at once
+	 */
+	int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * Submits a batch of read entries to be analysed and written, waiting while the queue to the analysers is full.
+	 * @param entries the array holding the read entries, entries that are null are skipped
+	 * @param first the position of the first read entry in the array
+	 * @param end the position after the last read entry in the array
+	 * @param ordinal the position of the first entry of the batch among all submitted entries, the batches are written in the order of their ordinals and should be submitted in that order
+	 */
+	void submit(Entry[] entries, int first, int end, long ordinal) {
+		submit(new Batch(entries, null, first, end, ordinal));
+	}
+
+	/**
+	 * Submits read entries from an entry store to be analysed and written, split into batches.
+	 * The entries are written in the order of their position, every position should be submitted once and in the order of the positions.
+	 * This waits while the queue to the analysers is full.
+	 * @param store the store holding the read entries, positions that have not been read are skipped
+	 * @param first the position of the first read entry in the store
+	 * @param end the position after the last read entry in the store
+	 */
+	void submit(EntryStore store, int first, int end) {
+		int batchFirst = first;
+		while (batchFirst < end) {
+			int batchEnd = (int) Math.min((long) batchFirst + batchSize, end);
+			submit(new Batch(null, store, batchFirst, batchEnd, batchFirst));
+			batchFirst = batchEnd;
+		}
+	}
+
+	/**
+	 * @param batch a batch of read entries to be analysed and written, waiting while the queue to the analysers is full
+	 */
+	private void submit(Batch batch) {
+		try {
+			toAnalyse.put(batch);
+		}
+		catch (InterruptedException interruptedEx) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while submitting entries to be analysed.", interruptedEx);
+		}
+	}
+
+	/**
+	 * Ends the pipeline after every submitted entry, and waits until every entry has been analysed and written.
+	 * If a stage of the pipeline failed, its failure is thrown.
+	 */
+	void finish() {
+		try {
+			toAnalyse.put(END);
+			writer.join();
+			dispatcher.join();
+		}
+		catch (InterruptedException interruptedEx) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while finishing the analysis.", interruptedEx);
+		}
+		finally {
+			analysers.shutdown();
+		}
+		checkFailure();
+	}
+
+	/**
+	 * Hands the batches from the queue to the analysers to the pool of analysers, waiting while as many batches are being analysed or waiting to be written as fit in a queue.
+	 * After the last batch it waits until every batch has been written and then ends the writer.
+	 */
+	private void dispatch() {
+		try {
+			Batch batch;
+			while ((batch = toAnalyse.take()) != END) {
+				batchesInAnalysis.acquire();
+				analysers.execute(new BatchTask(batch));
+			}
+			batchesInAnalysis.acquire(maxBatchesInAnalysis); // every batch has been written once every permit is back
+			toWrite.put(END);
+		}
+		catch (InterruptedException interruptedEx) {
+			return; // another stage failed
+		}
+		catch (Throwable throwable) {
+			fail(throwable);
+		}
+	}
+
+	/**
+	 * Writes the analysed batches in the order of their ordinals, until every analyser has ended.
+	 */
+	private void write() {
+		HashMap<Long, Batch> reorderBuffer = new HashMap<>(); // analysed batches waiting for the batches before them
+		long nextOrdinal = 0;
+		try {
+			Batch batch;
+			while ((batch = toWrite.take()) != END) {
+				reorderBuffer.put(batch.ordinal, batch);
+				maxReorderBufferSize = Math.max(maxReorderBufferSize, reorderBuffer.size());
+				while ((batch = reorderBuffer.remove(nextOrdinal)) != null) {
+					writeBatch(batch);
+					nextOrdinal += batch.end - batch.first;
+					batchesInAnalysis.release();
+				}
+			}
+			if (!reorderBuffer.isEmpty()) {
+				throw new IllegalStateException("Entries from position " + nextOrdinal + " were never submitted.");
+			}
+			output.flush();
+		}
+		catch (InterruptedException interruptedEx) {
+			return; // another stage failed
+		}
+		catch (Throwable throwable) {
+			fail(throwable);
+		}
+	}
+
+	/**
+	 * @param batch an analysed batch, of which the entries that pass the filter are written
+	 * @throws IOException
+	 */
+	private void writeBatch(Batch batch) throws IOException {
+		for (int ii = batch.first; ii < batch.end; ii++) {
+			Entry entry = batch.entries[ii];
+			if (entry != null && entry.signatureIntact() && entry.hasSIAndFN() && (filter != Filter.IRREGULAR || entry.hasIrregularTimeStamps() || entry.isTruncated())) {
+				output.write(entry);
+			}
+		}
+	}
+
+	/**
+	 * Records the failure of a stage and stops the other stages.
+	 * @param throwable the failure
+	 */
+	private synchronized void fail(Throwable throwable) {
+		if (failure == null) {
+			failure = throwable;
+			writer.interrupt();
+			dispatcher.interrupt();
+			analysers.shutdownNow();
+		}
+	}
+
+	/**
+	 * Rethrows the failure of a stage of the pipeline, if a stage failed.
+	 */
+	private void checkFailure() {
+		Throwable failure = this.failure;
+		if (failure instanceof RuntimeException) {
+			throw (RuntimeException) failure;
+		}
+		if (failure instanceof Error) {
+			throw (Error) failure;
+		}
+		if (failure != null) {
+			throw new IllegalStateException("The analysis failed.", failure);
+		}
+	}
+
+	/**
+	 * @return the amount of batches that are being analysed or waiting to be written while the pipeline runs, at most the size of a queue
+	 */
+	int getBatchesInFlight() {
+		return maxBatchesInAnalysis - batchesInAnalysis.availablePermits();
+	}
+
+	/**
+	 * @return the most analysed batches that waited at once in the reorder buffer for the batches before them to be written, which is no more than fit in a queue
+	 */
+	int getMaxReorderBufferSize() {
+		return maxReorderBufferSize;
+	}
+
+	/**
+	 * Prints how full the queues between the stages were, which shows where the bottleneck is:
+	 * a queue that is mostly full while its producers wait points at the stage after it, a queue that is mostly empty while its consumers wait points at the stage before it.
+	 * @param statistics the stream to print to
+	 */
+	void printStatistics(PrintStream statistics) {
+		statistics.println("queue to analysers (" + analysers.getParallelism() + " threads, " + analysers.getStealCount() + " tasks stolen): " + toAnalyse);
+		statistics.println("queue to writer: " + toWrite);
+		statistics.println("reorder buffer: at most " + getMaxReorderBufferSize() + " batches of " + batchSize + " entries");
+	}
+
+	/**
+	 * A range of read entries which is analysed and written as a whole, either in an array of entries or in an entry store.
+	 */
+	private static class Batch {
+		final Entry[] entries;
+		final EntryStore store;
+		final int first;
+		final int end;
+		final long ordinal;
+
+		Batch(Entry[] entries, EntryStore store, int first, int end, long ordinal) {
+			this.entries = entries;
+			this.store = store;
+			this.first = first;
+			this.end = end;
+			this.ordinal = ordinal;
+		}
+	}
+
+	/**
+	 * The analysis of a batch, which queues the batch to the writer once it has been analysed. The writer gives back the permit of the batch once it has written the batch.
+	 * Batches from an entry store are made into Entry objects by the analysers, as part of the analysis.
+	 */
+	private class BatchTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final Batch batch;
+
+		BatchTask(Batch batch) {
+			this.batch = batch;
+		}
+
+		@Override
+		protected void compute() {
+			boolean queued = false;
+			try {
+				Batch analysed = batch;
+				if (batch.store != null) {
+					analysed = new Batch(new Entry[batch.end - batch.first], null, 0, batch.end - batch.first, batch.ordinal);
+				}
+				new AnalyseTask(analysed.entries, batch.store, batch.first, analysed.first, analysed.end).compute();
+				toWrite.put(analysed);
+				queued = true;
+			}
+			catch (InterruptedException interruptedEx) {
+				return; // another stage failed
+			}
+			catch (Throwable throwable) {
+				fail(throwable);
+			}
+			finally {
+				if (!queued) {
+					batchesInAnalysis.release();
+				}
+			}
+		}
+	}
+
+	/**
+	 * The analysis of a range of the entries of a batch, which splits off halves of the range for other analysers while they are out of work.
+	 */
+	private class AnalyseTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final Entry[] entries;
+		private final EntryStore store; // the store the entries are made from, null if the entries have been made already
+		private final int storeFirst; // the position in the store of the first entry of the array
+		private final int first;
+		private final int end;
+		private AnalyseTask next; // the task split off before this one, by the same task
+
+		AnalyseTask(Entry[] entries, EntryStore store, int storeFirst, int first, int end) {
+			this.entries = entries;
+			this.store = store;
+			this.storeFirst = storeFirst;
+			this.first = first;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			int splitEnd = end;
+			AnalyseTask splits = null;
+			while (splitEnd - first > 1 && getSurplusQueuedTaskCount() <= MAX_SURPLUS_TASKS) {
+				int middle = (first + splitEnd) >>> 1;
+				AnalyseTask split = new AnalyseTask(entries, store, storeFirst, middle, splitEnd);
+				split.next = splits;
+				splits = split;
+				split.fork();
+				splitEnd = middle;
+			}
+			for (int ii = first; ii < splitEnd; ii++) {
+				if (store != null) {
+					entries[ii] = store.getEntry(storeFirst + ii);
+				}
+				Entry entry = entries[ii];
+				if (entry != null && entry.signatureIntact() && entry.hasSIAndFN()) {
+					analyser.analyseEntry(entry);
+				}
+			}
+			for (AnalyseTask split = splits; split != null; split = split.next) {
+				split.join();
+			}
+		}
+	}
+
+	/**
+	 * A bounded queue between two stages, which keeps track of its depth and of how long its producers and consumers waited.
+	 */
+	private class StageQueue {
+		private final ArrayBlockingQueue<Batch> queue;
+		private final AtomicLong takes = new AtomicLong();
+		private final AtomicLong totalDepth = new AtomicLong(); // sum of the depth seen by every take
+		private final AtomicLong maxDepth = new AtomicLong();
+		private final AtomicLong producerWait = new AtomicLong(); // nanoseconds
+		private final AtomicLong consumerWait = new AtomicLong(); // nanoseconds
+
+		StageQueue(int capacity) {
+			queue = new ArrayBlockingQueue<>(capacity);
+		}
+
+		/**
+		 * Puts a batch in the queue, waiting while it is full.
+		 * @param batch the batch
+		 * @throws InterruptedException
+		 */
+		void put(Batch batch) throws InterruptedException {
+			if (!queue.offer(batch)) {
+				long start = System.nanoTime();
+				while (!queue.offer(batch, POLL_INTERVAL, TimeUnit.MILLISECONDS)) {
+					checkFailure();
+				}
+				producerWait.addAndGet(System.nanoTime() - start);
+			}
+		}
+
+		/**
+		 * Takes a batch from the queue, waiting while it is empty.
+		 * @return the batch
+		 * @throws InterruptedException
+		 */
+		Batch take() throws InterruptedException {
+			int depth = queue.size();
+			takes.incrementAndGet();
+			totalDepth.addAndGet(depth);
+			maxDepth.accumulateAndGet(depth, Math::max);
+			Batch batch = queue.poll();
+			if (batch == null) {
+				long start = System.nanoTime();
+				batch = queue.take();
+				consumerWait.addAndGet(System.nanoTime() - start);
+			}
+			return batch;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("capacity %d, mean depth %.1f, max depth %d, producers waited %d ms, consumers waited %d ms",
+					queue.remainingCapacity() + queue.size(), takes.get() == 0 ? 0.0 : (double) totalDepth.get() / takes.get(), maxDepth.get(),
+					TimeUnit.NANOSECONDS.toMillis(producerWait.get()), TimeUnit.NANOSECONDS.toMillis(consumerWait.get()));
+		}
+	}
+
+}
@@ -0,0 +1,79 @@
+/**
+ *
+ */
+package timeAnalyser;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * @author Jelle Bouma
+ *
+ */
+public class PipelineTest {
+
+	static final long TIMEOUT = TimeUnit.SECONDS.toNanos(30); // the longest the test waits for the pipeline to fill up
+
+	/**
+	 * An entry without metadata which keeps the analyser that checks it waiting until it is released.
+	 */
+	private static class StalledEntry extends Entry {
+		final CountDownLatch released = new CountDownLatch(1);
+
+		StalledEntry(long index) {
+			super(index, true);
+		}
+
+		@Override
+		public boolean hasSIAndFN() {
+			try {
+				released.await();
+			}
+			catch (InterruptedException interruptedEx) {
+				Thread.currentThread().interrupt();
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Test method for {@link timeAnalyser.Pipeline#getMaxReorderBufferSize()}.
+	 */
+	@Test
+	public void stalledFirstBatch_ShouldNot_GrowTheReorderBufferPastTheQueueSize() throws IOException, InterruptedException {
+		int queueSize = 2;
+		int batches = 30;
+		File output = File.createTempFile("output", ".txt");
+		try (EntryWriter writer = new EntryWriter(output)) {
+			Pipeline pipeline = new Pipeline(new Analyser(new OperationList(), Priority.REGULAR), 8, queueSize, 1, writer, Filter.ALL);
+			StalledEntry stalled = new StalledEntry(0);
+			CountDownLatch submitted = new CountDownLatch(1);
+			Thread submitter = new Thread(() -> {
+				pipeline.submit(new Entry[] {stalled}, 0, 1, 0);
+				for (int ii = 1; ii < batches; ii++) {
+					pipeline.submit(new Entry[] {new Entry(ii, true)}, 0, 1, ii);
+				}
+				submitted.countDown();
+			});
+			submitter.start();
+			long start = System.nanoTime();
+			while (pipeline.getBatchesInFlight() < queueSize && !submitted.await(1, TimeUnit.MILLISECONDS)) { // until every permit is held, behind the stalled batch, or every batch got past it
+				assertTrue("The pipeline did not fill up.", System.nanoTime() - start < TIMEOUT);
+			}
+			stalled.released.countDown();
+			submitter.join();
+			pipeline.finish();
+			assertTrue("reorder buffer held " + pipeline.getMaxReorderBufferSize() + " batches", pipeline.getMaxReorderBufferSize() <= queueSize);
+		}
+		finally {
+			output.delete();
+		}
+	}
+
+}
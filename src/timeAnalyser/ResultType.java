@@ -135,6 +135,21 @@ public enum ResultType {
     	return timestamp.isRoundedOn(rounding);
     }
     
+    /**
+     * @param timeValue the raw value of a time-stamp
+     * @return if the time-stamp has the rounding of this time-stamp change
+     */
+    boolean match(long timeValue) {
+    	return Timestamp.isRoundedOn(timeValue, rounding);
+    }
+    
+    /**
+     * @return the rounding class of the time-stamp change (see TimestampSignature)
+     */
+    int getRoundingClass() {
+    	return TimestampSignature.getRoundingClass(rounding);
+    }
+    
     int getCopySource(int changeIndex) {
     	switch(this.copyStyle) {
     		case COPIED_FROM_SAME_TYPE: return (changeIndex + 4) % 8;
@@ -9,6 +9,9 @@ import java.util.ArrayList;
  * A Sequence is a sequence of operations that may have happened, the times that those operations happened and the before and after meta-data.
  * The duties of a Sequence are: Adding of matched operations and the meta-data that was formed by the operations, getting and storing the time and meta-data for which the matched operations happened.
  * A sequence has a marking which keeps track of which time-stamps have been matched to file operations and which have not.
+ * The matched operations are kept in a persistent linked list of immutable steps, of which every step refers to the step added before it.
+ * A cloned sequence shares every step with the sequence it was cloned from, so branching a sequence takes constant time and memory no matter how long it is,
+ * and the sequences of an entry together hold one step for every distinct step rather than one for every step of every sequence.
  * @author Jelle Bouma
  * @see FileMetadata TimeMatch
  */
@@ -19,8 +22,9 @@ public class Sequence {
 	// This is because the meta-data can change as a result of some file operations.
 	// A FileMetadata is located at the same index as the TimeMatch that formed it.
 	// There is always one more FileMetadata object than there are TimeMatch objects, because the highest index FileMetadata is the FileMetadata before any of the matched file operations took place.
-	ArrayList<TimeMatch> matches = new ArrayList<TimeMatch>();
-	ArrayList<FileMetadata> metadataList = new ArrayList<FileMetadata>();
+	// The initial FileMetadata is kept on its own, every step holds a TimeMatch and the FileMetadata at the index after it.
+	private final FileMetadata initialMetadata;
+	private Step last; // the step that was added last, null if no operations have been matched
 	private Marking matchedTimestamps = new Marking();
 	private boolean hasForgery = false;
 	
@@ -31,16 +35,26 @@ public class Sequence {
 	 * @param metadata the initial file meta-data read from the MFT
 	 */
 	public Sequence(FileMetadata metadata) {
-		metadataList.add(metadata);
+		initialMetadata = metadata;
 	}
 	
 	/**
 	 * Private constructor for cloning.
 	 */
-	private Sequence(ArrayList<TimeMatch> matches, ArrayList<FileMetadata> metadataList, Marking matchedTimestamps) {
-		this.matches = matches;
-		this.metadataList = metadataList;
+	private Sequence(FileMetadata initialMetadata, Step last, Marking matchedTimestamps, boolean hasForgery) {
+		this.initialMetadata = initialMetadata;
+		this.last = last;
 		this.matchedTimestamps = matchedTimestamps;
+		this.hasForgery = hasForgery;
+	}
+	
+	/**
+	 * Adds a step to the end of the sequence.
+	 * @param match the time and operations of the step
+	 * @param metadata the meta-data from before the operations of the step
+	 */
+	private void addStep(TimeMatch match, FileMetadata metadata) {
+		last = new Step(match, metadata, last);
 	}
 	
 	/**
@@ -54,12 +68,12 @@ public class Sequence {
 	 */
 	public void add(FileMetadata metadata, ArrayList<Operation> matchedOperations) {
 		Operation firstMatch = matchedOperations.get(0);
-		matches.add(findTimeMatch(metadata, matchedOperations));
+		TimeMatch match = findTimeMatch(metadata, matchedOperations);
 		int fromOtherVolume = firstMatch.fromOtherVolume();
 		if (fromOtherVolume != -1) { // If the operation (0 = possibly, 1 = definitely) happened on another volume.
 			metadata = metadata.clone(fromOtherVolume); // Create a new copy of the FileMetaData that is (possibly or definitely) on another volume.
 		}
-		metadataList.add(metadata);
+		addStep(match, metadata);
 		matchedTimestamps.mark(firstMatch.getMarking());
 	}
 	
@@ -70,8 +84,7 @@ public class Sequence {
 	 * @see TimeMatch
 	 */
 	public void addForgery(FileMetadata metadata, ArrayList<Operation> matchedOperations) {
-		matches.add(findTimeMatch(metadata, matchedOperations));
-		metadataList.add(metadata);
+		addStep(findTimeMatch(metadata, matchedOperations), metadata);
 		hasForgery = true;
 	}
 	
@@ -86,7 +99,7 @@ public class Sequence {
 	 */
 	public void addWithCopying(FileMetadata metadata, ArrayList<Operation> matchedOperations) {
 		Operation firstMatch = matchedOperations.get(0);
-		matches.add(findTimeMatch(metadata, matchedOperations));
+		TimeMatch match = findTimeMatch(metadata, matchedOperations);
 		matchedTimestamps.mark(firstMatch.getMarking());
 		FileMetadata newMetadata = metadata.clone(firstMatch.fromOtherVolume());
 		Timestamps timestamps = newMetadata.getTimestamps();
@@ -98,7 +111,7 @@ public class Sequence {
 			}
 		}
 		matchedTimestamps.mark(firstMatch.getCopyMarking());
-		metadataList.add(newMetadata);
+		addStep(match, newMetadata);
 	}
 	
 	/**
@@ -113,10 +126,8 @@ public class Sequence {
 	public Sequence addSplit(FileMetadata metadata, ArrayList<Operation> matchedOperations) {
 		Operation firstMatch = matchedOperations.get(0);
 		Sequence split = split();
-		matches.add(findTimeMatch(metadata, matchedOperations));
-		split.matches.add(findTimeMatch(metadata, matchedOperations));
-		metadataList.add(metadata);
-		split.metadataList.add(metadata.splitFrom(firstMatch.fromOtherVolume()));
+		addStep(findTimeMatch(metadata, matchedOperations), metadata);
+		split.addStep(findTimeMatch(metadata, matchedOperations), metadata.splitFrom(firstMatch.fromOtherVolume()));
 		matchedTimestamps.mark(firstMatch.getSplitMarkings()[0]);
 		split.matchedTimestamps.mark(firstMatch.getSplitMarkings()[1]);
 		return split;
@@ -129,17 +140,16 @@ public class Sequence {
 	public void addDeletionOperation(FileMetadata metadata) {
 		ArrayList<Operation> matchedDeletion = new ArrayList<Operation>();
 		matchedDeletion.add(TimeAnalyser.DELETION_OPERATION);
-		Timestamp[] timestamps = metadata.getTimestamps().getAll();
-		Timestamp latestTimestamp = timestamps[0];
-		for (Timestamp timestamp : timestamps) {
-			if (latestTimestamp.compare(timestamp) < 0) {
+		long[] timestamps = metadata.getTimestamps().getValues();
+		long latestTimestamp = timestamps[0];
+		for (long timestamp : timestamps) {
+			if (Timestamp.compare(latestTimestamp, timestamp) < 0) {
 				latestTimestamp = timestamp;
 			}
 		}
-		matches.add(new TimeMatch(latestTimestamp, null, matchedDeletion, true));
 		FileMetadata undeleted = metadata.clone();
 		undeleted.setDeleted(false);
-		metadataList.add(undeleted);
+		addStep(new TimeMatch(new Timestamp(latestTimestamp), null, matchedDeletion, true), undeleted);
 	}
 	
 	
@@ -172,8 +182,11 @@ public class Sequence {
 		return matchedTimestamps.isFullyMarked();
 	}
 	
+	/**
+	 * @return a sequence that shares every step of this sequence, to which steps can be added without affecting this sequence
+	 */
 	protected Sequence clone() {
-		return new Sequence((ArrayList<TimeMatch>)matches.clone(), (ArrayList<FileMetadata>)metadataList.clone(), matchedTimestamps.clone());
+		return new Sequence(initialMetadata, last, matchedTimestamps.clone(), false);
 	}
 	
 	/**
@@ -186,29 +199,92 @@ public class Sequence {
 		return splitting;
 	}
 	
+	/**
+	 * @return the amount of matched steps
+	 */
+	private int getAmountOfMatches() {
+		return last == null ? 0 : last.index + 1;
+	}
+	
+	/**
+	 * @param index the index of a TimeMatch
+	 * @return the step holding the TimeMatch, found by walking back from the last step
+	 */
+	private Step getStep(int index) {
+		if (index < 0 || index >= getAmountOfMatches()) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + getAmountOfMatches());
+		}
+		Step step = last;
+		while (step.index != index) {
+			step = step.previous;
+		}
+		return step;
+	}
+	
+	/**
+	 * @return the steps from the first to the last
+	 */
+	private Step[] getSteps() {
+		Step[] steps = new Step[getAmountOfMatches()];
+		for (Step step = last; step != null; step = step.previous) {
+			steps[step.index] = step;
+		}
+		return steps;
+	}
+	
+	/**
+	 * @return the TimeMatch objects from the first to the last, found in a single walk over the steps
+	 */
+	TimeMatch[] getTimeMatches() {
+		TimeMatch[] matches = new TimeMatch[getAmountOfMatches()];
+		for (Step step = last; step != null; step = step.previous) {
+			matches[step.index] = step.match;
+		}
+		return matches;
+	}
+	
+	/**
+	 * @return the FileMetadata objects from the initial to the earliest, found in a single walk over the steps
+	 */
+	FileMetadata[] getAllMetadata() {
+		FileMetadata[] metadata = new FileMetadata[getAmountOfMetadata()];
+		metadata[0] = initialMetadata;
+		for (Step step = last; step != null; step = step.previous) {
+			metadata[step.index + 1] = step.metadata;
+		}
+		return metadata;
+	}
+	
 	public int getAmountOfMetadata() {
-		return metadataList.size();
+		return getAmountOfMatches() + 1;
 	}
 	
 	public FileMetadata getMetadata(int index) {
-		return metadataList.get(index);
+		return index == 0 ? initialMetadata : getStep(index - 1).metadata;
 	}
 	
 	public TimeMatch getTimeMatch(int index) {
-		return matches.get(index);
+		return getStep(index).match;
 	}
 	
 	public FileMetadata getEarliestMetadata() {
-		return metadataList.get(metadataList.size() - 1);
+		return last == null ? initialMetadata : last.metadata;
+	}
+	
+	/**
+	 * @return if forgery operations have been matched
+	 */
+	boolean hasForgery() {
+		return hasForgery;
 	}
 	
 	public boolean hasIrregularTimeStamps() {
-		return hasForgery || matches.size() == 0;
+		return hasForgery || last == null;
 	}
 	
 	public String toString() {
 		String sequence = "";
-		FileMetadata metadata = metadataList.get(0);
+		FileMetadata metadata = initialMetadata;
 		if(metadata.hasPath()) {
 			sequence += metadata.getPath() + " ";
 		}
@@ -220,8 +296,8 @@ public class Sequence {
 				sequence += "no file name ";
 			}
 		}
-		if (matches.size() == 0) {
-			if(metadataList.get(0).hasSIAndFN()) {
+		if (last == null) {
+			if(initialMetadata.hasSIAndFN()) {
 				return sequence + "irregular time-stamps";
 			}
 			else {
@@ -231,17 +307,18 @@ public class Sequence {
 		if (hasForgery) {
 			sequence += "irregular time-stamps: ";
 		}
-		for(int ii = 0; ii < matches.size() - 1; ii++) {
-			sequence += matchToString(ii);
+		Step[] steps = getSteps();
+		for(int ii = 0; ii < steps.length - 1; ii++) {
+			sequence += matchToString(steps, ii);
 			sequence += " <- ";
 		}
-		return sequence + matchToString(matches.size() - 1);
+		return sequence + matchToString(steps, steps.length - 1);
 	}
 	
-	private String matchToString(int index) {
+	private String matchToString(Step[] steps, int index) {
 		String match = "";
-		match += "(" + matches.get(index) + ")";
-		switch (metadataList.get(index).onOtherVolume()) {
+		match += "(" + steps[index].match + ")";
+		switch ((index == 0 ? initialMetadata : steps[index - 1].metadata).onOtherVolume()) {
 			case 0:		return match + " possibly on other volume";
 			case 1:		return match + " on other volume";
 			default: 	return match;
@@ -252,13 +329,34 @@ public class Sequence {
 	 * @return if this sequence is split from another sequence, because of a combining operation.
 	 */
 	boolean isSplitting() {
-		for (FileMetadata metadata : metadataList) {
-			if (metadata.isSplitting()) {
+		if (initialMetadata.isSplitting()) {
+			return true;
+		}
+		for (Step step = last; step != null; step = step.previous) {
+			if (step.metadata.isSplitting()) {
 				return true;
 			}
 		}
 		return false;
 	}
 	
+	/**
+	 * An immutable step of a sequence: a TimeMatch and the meta-data from before its operations, linked to the step before it.
+	 * Steps are shared by every sequence that was cloned after they were added.
+	 */
+	private static class Step {
+		final TimeMatch match;
+		final FileMetadata metadata;
+		final Step previous;
+		final int index; // the index of the TimeMatch in the sequence
+		
+		Step(TimeMatch match, FileMetadata metadata, Step previous) {
+			this.match = match;
+			this.metadata = metadata;
+			this.previous = previous;
+			index = previous == null ? 0 : previous.index + 1;
+		}
+	}
+	
 	
 }
@@ -2,8 +2,7 @@ package timeAnalyser;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.util.ArrayList;
+import java.io.UncheckedIOException;
 import java.util.Objects;
 
 /**
@@ -18,26 +17,35 @@ import java.util.Objects;
  */
 public class TimeAnalyser {
 
-	static final OperationList OPERATION_LIST = new OperationList();
-	static MFTReader reader;
-	static Entry[] entries;
 	static final int DEFAULT_ENTRY_SIZE = 1024;
 	static final Operation DELETION_OPERATION = new Operation("Delete", ResultType.U, ResultType.U, ResultType.U, ResultType.U, ResultType.U, ResultType.U, ResultType.U, ResultType.U);
-	static PrintWriter outputWriter;
-	private static Priority priority = Priority.REGULAR;
 	
 	/**
 	 * Main method, validates and parses the arguments and then delegates the work.
 	 * @param args
-	 * args[0] input file
+	 * args[0] input file, either an MFT, a gzip-compressed MFT or a raw NTFS volume image from which the MFT is read directly
 	 * args[1] output file
-	 * args[2] (optional) MFT entry size in bytes: default is 1024.
+	 * args[2] (optional) MFT entry size in bytes: default is 1024. The entry size of a volume image is read from its boot sector instead.
 	 * args[3] (optional) filter: either ``deleted'' to analyse only time-stamps of deleted files, ``irregular'' to find files with irregular time-stamps or ``all'' for everything (default).
 	 * args[4] (optional) priority: either ``equal'' to consider forgery operations always or ``regular'' to consider forgery operations only when regular operations can not be matched (default).
-	 * args[5] (optional) list of indexes or file names to be analysed separated by ``|''. By default every file in the MFT is analysed.
+	 * args[5] (optional) list of indexes, ranges of indexes (such as ``100-250000'') or file names to be analysed separated by ``|''. File names may contain the wildcards ``*'' and ``?'' (such as ``*.docx''). By default every file in the MFT is analysed.
+	 * Named options can be given anywhere on the command line:
+	 * --mapped to read the MFT by mapping it into memory instead of reading it through a stream.
+	 * --threads=N to parse the MFT with N threads, by default the MFT is parsed on a single thread.
+	 * --streaming to read, analyse and write the entries a batch at a time. The parent directories and names of the directories are read in a first pass, for the full file paths.
+	 * MFTs that are too large to be read at once are always analysed this way, MFTs with more entries than fit in an array are written with file names instead of full paths.
+	 * --analysers=N to analyse the entries on a work-stealing pool of N threads, by default there is a thread for every processor.
+	 * --queue=N to let N batches wait between reading and analysing, be analysed, and wait between analysing and writing, by default twice the amount of analysers.
+	 * --batch=N to hand N entries from stage to stage at once, by default 256.
+	 * --max-sequences=N to let the analysis of an entry make at most N sequences, --max-steps=N to let it take at most N matching steps and --max-time=N to let it take at most N milliseconds.
+	 * An entry that reaches a limit is written with the sequences found so far, followed by a line saying which limit cut its analysis off. By default there are no limits.
+	 * --jsonl to write a JSON object for every sequence on a line of its own instead of text, for other tools to read.
+	 * --stats to print how full the queues between the stages were to the standard error stream, which shows which stage is the bottleneck, and how often matched operations were found in the cache.
 	 * @throws IOException 
 	 */
 	public static void main(String[] args) throws IOException {
+		Options options = new Options(args);
+		args = options.getPositional();
 		if (args.length < 2) {
 			throw new IllegalArgumentException("Not enough parameters, specify at least an input and output file.");
 		}
@@ -64,26 +72,23 @@ public class TimeAnalyser {
 				throw new IllegalArgumentException(args[3] + " is not a valid filter, use 'deleted', 'irregular' or 'all'.");
 			}
 		}
+		Priority priority = Priority.REGULAR;
 		if (args.length > 4 && args[4].equals("equal")) {
 			priority = Priority.EQUAL;
 		}
 		boolean hasIndexFilter = false;
 		if (args.length > 5) {
-			hasIndexFilter = args[5].matches("[\\d]([\\d]*|(\\|[\\d]))+");
+			hasIndexFilter = IndexRanges.isIndexList(args[5]);
 		}
 		if (args.length > 6) {
 			throw new IllegalArgumentException("Too many parameters, use the following: input, output, filter, list of indexes or list of file names separated by |");
 		}
+		MFTReader reader;
 		switch (args.length) {
 			case 4:		reader = new MFTReader(new File(args[0]), entrySize, filter);
 						break;
 			case 6:		if(hasIndexFilter) {
-							String[] stringIndexes = args[5].split("\\|");
-							ArrayList<Integer> indexes = new ArrayList<>();
-							for(String index : stringIndexes) {
-								indexes.add(Integer.parseInt(index));
-							}
-							reader = new MFTReader(new File(args[0]), entrySize, filter, indexes);
+							reader = new MFTReader(new File(args[0]), entrySize, filter, IndexRanges.parse(args[5]));
 						}
 						else {
 							reader = new MFTReader(new File(args[0]), entrySize, filter, args[5].split("\\|"));
@@ -91,145 +96,79 @@ public class TimeAnalyser {
 						break;
 			default: 	reader = new MFTReader(new File(args[0]), entrySize);
 		}
-		entries = reader.read();
-		if(!hasIndexFilter) {
-			findFullPaths();
-		}
-		for (Entry entry : entries) {
-			if (entry.signatureIntact() && entry.hasSIAndFN()) {
-				analyseEntry(entry);
+		if (GzipBlockReader.isGzip(input)) {
+			reader.setCompressed(true);
+		}
+		else if (NTFSVolume.isNTFSImage(input)) {
+			reader.setVolume(new NTFSVolume(input));
+		}
+		reader.setMemoryMapped(options.has("mapped"));
+		reader.setThreads(options.getInt("threads", 1));
+		boolean streaming = !hasIndexFilter && (options.has("streaming") || reader.getEntryCount() > MFTReader.MAX_ENTRIES_IN_ARRAY);
+		boolean findPaths = !streaming && !hasIndexFilter && reader.filter != Filter.DELETED; // only deleted files are read with the deleted filter, they do not get a full path
+		int analysers = options.getInt("analysers", Runtime.getRuntime().availableProcessors());
+		long maxSteps = options.getLong("max-steps", Long.MAX_VALUE);
+		long maxTime = options.getLong("max-time", 0);
+		Analyser analyser = new Analyser(new OperationList(), priority, options.getInt("max-sequences", Integer.MAX_VALUE), maxSteps, maxTime);
+		EntryWriter outputWriter = options.has("jsonl") ? new JsonLinesWriter(new File(args[1])) : new EntryWriter(new File(args[1]));
+		Pipeline pipeline = new Pipeline(analyser, analysers, options.getInt("queue", 2 * analysers), options.getInt("batch", Pipeline.DEFAULT_BATCH_SIZE), outputWriter, filter);
+		try {
+			if (streaming) {
+				if (reader.filter != Filter.DELETED) {
+					reader.setPaths(reader.readPaths());
+				}
+				readStreaming(reader, pipeline);
 			}
-		}
-		outputWriter = new PrintWriter(args[1]);
-		for (Entry entry : entries) {
-			if (entry.signatureIntact() && entry.hasSIAndFN() && (filter != Filter.IRREGULAR || entry.hasIrregularTimeStamps())) {
-				outputWriter.println(entry);
+			else if (findPaths) { // the full paths are only known once every entry has been read, so the entries are analysed after reading
+				EntryStore entries = reader.read();
+				findFullPaths(entries);
+				pipeline.submit(entries, 0, entries.size());
 			}
-		}
-		outputWriter.close();
-	}
-	
-	/**
-	 * Find the full file paths of all entries.
-	 */
-	private static void findFullPaths() {
-		for(int ii = 0; ii < entries.length; ii++) {
-			if (entries[ii].signatureIntact()) {
-				FileMetadata metadata = entries[ii].getSequence(0).getMetadata(0);
-				if (!metadata.isDeleted() && metadata.hasSIAndFN()) {
-					metadata.setPath(findFullPath(ii));
-				}
+			else {
+				reader.setPipeline(pipeline);
+				reader.read();
 			}
+			pipeline.finish();
 		}
-	}
-	
-	/**
-	 * Finds a full path of a file by recursively finding the file paths of parent directory entries.
-	 * @param entryID the MFT entry index of the file for which the full file path should be found.
-	 * @return full file path of the file at the specified MFT entry
-	 */
-	public static String findFullPath(int entryID) {
-		FileMetadata metadata = entries[entryID].getSequence(0).getMetadata(0);
-		if (metadata.hasPath()) {
-			return metadata.getPath();
-		}
-		int parentID = metadata.getParentID();
-		if (parentID == -1) {
-			return "";
+		finally {
+			outputWriter.close();
 		}
-		if (parentID == entryID) {
-			return metadata.getName();
+		if (options.has("stats")) {
+			pipeline.printStatistics(System.err);
+			System.err.println("matched operations cache: " + analyser.getCache());
 		}
-		return findFullPath(parentID) + "\\" + metadata.getName();
 	}
 	
-	
 	/**
-	 * Analyses the entry finding all possible sequences of operations that might have led to the meta-data of the entry.
-	 * @param entry 
+	 * Reads the entries of the MFT one batch at a time into the pipeline, so that no more entries are held in memory than fit in the pipeline.
+	 * Entries get their full file path if the reader has the paths of the MFT, otherwise they are written with their file name instead.
+	 * @param reader the reader of the MFT
+	 * @param pipeline the pipeline which analyses and writes the entries
+	 * @throws IOException
 	 */
-	private static void analyseEntry(Entry entry) {
-		Sequence firstSequence = entry.getSequence(0);
-		FileMetadata latestMetadata = firstSequence.getMetadata(0);
-		if (latestMetadata.isDeleted()) {
-			firstSequence.addDeletionOperation(latestMetadata);
+	private static void readStreaming(MFTReader reader, Pipeline pipeline) throws IOException {
+		long ordinal = 0;
+		try (EntrySource source = reader.openEntrySource()) {
+			while (source.hasNext()) {
+				Entry[] batch = new Entry[pipeline.getBatchSize()];
+				int size = 0;
+				while (size < batch.length && source.hasNext()) {
+					batch[size++] = source.next();
+				}
+				pipeline.submit(batch, 0, size, ordinal);
+				ordinal += size;
+			}
 		}
-		int ii = 0;
-		while (ii < entry.getAmountOfSequences()) {
-			fillSequence(entry, entry.getSequence(ii));
-			ii++;
+		catch (UncheckedIOException ioEx) {
+			throw ioEx.getCause();
 		}
 	}
 	
-	
 	/**
-	 * Fills a sequence by matching all time-stamps with file operations.
-	 * This might create additional sequences as file operations with different effects on meta-data can be matched to the same time-stamps.
-	 * @param entry The entry that the sequence belongs to, additional sequences can be added to the entry by this method.
-	 * @param sequence The sequence to be filled.
+	 * Find the full file paths of all entries, which are rendered when the entries are analysed.
+	 * @param entries the read entries
 	 */
-	private static void fillSequence(Entry entry, Sequence sequence) {
-		while (!sequence.isFullyMatched()) { // While there are unmarked time-stamps left (there is a return within this loop in case nothing can be matched anymore).
-			FileMetadata metadata = sequence.getEarliestMetadata();
-			Marking prevMarking = sequence.getMarking();
-			ArrayList<ArrayList<Operation>> matchedOperations = fillList(priority == Priority.REGULAR ? OPERATION_LIST.operations : OPERATION_LIST.allOperations, metadata, prevMarking);
-			if (matchedOperations.get(0).size() == 0) { // If no regular file operations can be matched, try to match forgery operations.
-				for (Operation operation : OPERATION_LIST.forgeryOperations) {
-					if (operation.matches(metadata, prevMarking)) {
-						matchedOperations.get(0).add(operation);
-					}
-				}
-				if(matchedOperations.get(0).size() > 0) { // If a forgery operation has been matched.
-					sequence.addForgery(metadata, matchedOperations.get(0));
-				}
-				return; // If forgery has been committed or the time-stamps can't be matched with anything else, stop trying to match more time-stamps.
-			}
-			for (int ii = matchedOperations.size() - 2; ii >= 0; ii--) { // For every list of matched operations, starting at the tail (tail list is ignored because it is empty).
-				Operation firstOperation = matchedOperations.get(ii).get(0);
-				Sequence newSequence;
-				if (ii == 0) { // The first list of matched operations continues the initial sequence.
-					newSequence = sequence;
-				}
-				else { // Other lists of matched operations create a new sequence that continue where the initial sequence left off.
-					newSequence = sequence.clone();
-				}
-				if (firstOperation.hasCopying()) { // If an operation copies time-stamps then they need to be copied back, to reverse engineer the operations that happened before.
-					newSequence.addWithCopying(metadata, matchedOperations.get(ii));
-				}
-				else {
-					if (firstOperation.isCombiningOperation() && firstOperation.isCombiningOperationFor(prevMarking)) { // If an operation combines time-stamps from two files, then the files need to be split again, to reverse engineer the operations that happened before.
-						Sequence otherFileSequence = newSequence.addSplit(metadata, matchedOperations.get(ii));
-						entry.add(otherFileSequence);
-					}
-					else { // Operation does not copy time-stamps or combine time-stamps from different files.
-						newSequence.add(metadata, matchedOperations.get(ii));
-					}
-				}
-				if (ii != 0) {
-					entry.add(newSequence);
-				}
-			}
-		}
-	}
-
-	public static ArrayList<ArrayList<Operation>> fillList(ArrayList<Operation> list, FileMetadata metadata, Marking prevMarking) {
-		ArrayList<ArrayList<Operation>> matchedOperations = new ArrayList<>(); // 2 dimensional arraylist, the operations are put in lists of operations that have the same effect on meta-data. The last list is kept empty.
-		matchedOperations.add(new ArrayList<>());
-		for (Operation operation : list) { // For every operation.
-			if (operation.matches(metadata, prevMarking)) { // If operation matches the time-stamps and associated marking.
-				for (ArrayList<Operation> timeMatchOperations : matchedOperations) { // For every list of matched operations.
-					if (timeMatchOperations.isEmpty()) { // If this list is empty (is the last list).
-						timeMatchOperations.add(operation);
-						matchedOperations.add(new ArrayList<>());
-						break;
-					}
-					if (timeMatchOperations.get(0).equalsForMarking(operation, prevMarking)) { // If the operation has the same effect on meta-data as another one for this marking, put them in the same list
-						timeMatchOperations.add(operation);
-						break;
-					}
-				}
-			}
-		}
-		return matchedOperations;
+	private static void findFullPaths(EntryStore entries) {
+		entries.setPaths(new PathTable(entries));
 	}
 }
@@ -9,33 +9,76 @@ import java.time.ZonedDateTime;
 
 /**
  * Immutable time-stamp read from MFT.
+ * Time-stamps are matched and compared on their raw value, the calendar date is only worked out when the time-stamp is rendered.
  * @author Jelle Bouma
  *
  */
 public class Timestamp {
 	
-	ZonedDateTime date;
-	long timeValue;
+	static final ZonedDateTime NTFS_EPOCH = ZonedDateTime.of(1601, 1, 1, 0, 0, 0, 0, ZoneId.of("UTC"));
+	
+	final long timeValue;
 	
 	public Timestamp(long timeValue) { // timeValue holds the unsigned amount of tenth microseconds from 1601-01-01 0:0:0
 		this.timeValue = timeValue;
-		date = ZonedDateTime.of(1601, 1, 1, 0, 0, 0, 0, ZoneId.of("UTC")); // set date to NTFS epoch
-		long seconds = Long.divideUnsigned(timeValue, 10000000L); // get signed seconds from the unsigned timeValue by dividing it by 10,000,000
-		long nanos = Long.remainderUnsigned(timeValue, 10000000L) * 100L; // get signed tenth micros from the unsigned timeValue and multiply by 100 to get the amount of nanos
-		date = date.plusSeconds(seconds).plusNanos(nanos); // add seconds and nanos to NTFS epoch to get the correct time-stamp
+	}
+	
+	/**
+	 * @return the unsigned amount of tenth microseconds from 1601-01-01 0:0:0
+	 */
+	public long getTimeValue() {
+		return timeValue;
 	}
 	
 	public boolean isRoundedOn(long tenthMicros) {
+		return isRoundedOn(timeValue, tenthMicros);
+	}
+	
+	/**
+	 * @param timeValue the unsigned amount of tenth microseconds from 1601-01-01 0:0:0
+	 * @param tenthMicros the rounding in tenth microseconds
+	 * @return if the time-stamp is rounded on the rounding
+	 */
+	static boolean isRoundedOn(long timeValue, long tenthMicros) {
 		return Long.remainderUnsigned(timeValue, tenthMicros) == 0L;
 	}
 	
 	public int compare(Timestamp t) {
-		return Long.compareUnsigned(timeValue, t.timeValue);
+		return compare(timeValue, t.timeValue);
+	}
+	
+	/**
+	 * @param timeValue1 the unsigned amount of tenth microseconds from 1601-01-01 0:0:0 of a time-stamp
+	 * @param timeValue2 the unsigned amount of tenth microseconds from 1601-01-01 0:0:0 of another time-stamp
+	 * @return a negative number, zero or a positive number if the first time-stamp is earlier than, equal to or later than the second
+	 */
+	static int compare(long timeValue1, long timeValue2) {
+		return Long.compareUnsigned(timeValue1, timeValue2);
+	}
+	
+	/**
+	 * @return the date and time of the time-stamp in UTC
+	 */
+	public ZonedDateTime getDate() {
+		long seconds = Long.divideUnsigned(timeValue, 10000000L); // get signed seconds from the unsigned timeValue by dividing it by 10,000,000
+		long nanos = Long.remainderUnsigned(timeValue, 10000000L) * 100L; // get signed tenth micros from the unsigned timeValue and multiply by 100 to get the amount of nanos
+		return NTFS_EPOCH.plusSeconds(seconds).plusNanos(nanos); // add seconds and nanos to NTFS epoch to get the correct time-stamp
+	}
+	
+	@Override
+	public boolean equals(Object other) {
+		return other instanceof Timestamp && ((Timestamp) other).timeValue == timeValue;
+	}
+	
+	@Override
+	public int hashCode() {
+		return Long.hashCode(timeValue);
 	}
 	
 	public String toString() {
+		ZonedDateTime date = getDate();
 		return date.getYear() + "-" + date.getMonth() + "-" + date.getDayOfMonth() + " "
 				+ date.getHour() + ":" + date.getMinute() + ":" + date.getSecond() + "." + String.format("%07d", date.getNano() / 100) + " " + date.getZone();
 	}
 	
-}
\ No newline at end of file
+}
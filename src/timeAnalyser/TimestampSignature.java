@@ -0,0 +1,95 @@
+package timeAnalyser;
+
+/**
+ *
+ */
+
+/**
+ * The relations between the eight time-stamps of file meta-data, packed into bitmasks, which is all that matching a file operation needs to know about the time-stamps.
+ * For every time-stamp it holds on which of the four roundings of time-stamp changes (none, 10 milliseconds, 1 second and 2 seconds) it is rounded,
+ * and for every one of the 28 pairs of time-stamps whether the first is earlier than, later than or equal to the second.
+ * The signature is worked out once per file meta-data, after which every file operation is matched to it by a few bitwise operations (see Operation.matchesTimestamps).
+ * @author Jelle Bouma
+ *
+ */
+public class TimestampSignature {
+
+	static final long[] ROUNDINGS = {1L, 100000L, 10000000L, 20000000L}; // the roundings of time-stamp changes, in tenth microseconds
+	static final int[][] PAIRS = new int[8][8]; // the bit of every pair of time-stamps, for the first time-stamp of the pair being the lower index
+	static final int[] UNMARKED_ROUNDINGS = new int[Marking.MARKINGS]; // for every marking, the rounding bits of the unmarked time-stamps
+	static final int[] UNMARKED_PAIRS = new int[Marking.MARKINGS]; // for every marking, the bits of the pairs of which neither time-stamp is marked
+
+	static {
+		int pair = 0;
+		for (int ii = 0; ii < 7; ii++) {
+			for (int jj = ii + 1; jj < 8; jj++) {
+				PAIRS[ii][jj] = 1 << pair++;
+			}
+		}
+		for (int bitmap = 0; bitmap < Marking.MARKINGS; bitmap++) {
+			for (int ii = 0; ii < 8; ii++) {
+				if ((bitmap & (1 << ii)) == 0) {
+					UNMARKED_ROUNDINGS[bitmap] |= 0xF << (ii * 4);
+					for (int jj = ii + 1; jj < 8; jj++) {
+						if ((bitmap & (1 << jj)) == 0) {
+							UNMARKED_PAIRS[bitmap] |= PAIRS[ii][jj];
+						}
+					}
+				}
+			}
+		}
+	}
+
+	final int roundings; // bit ii * 4 + rounding class is set if time-stamp ii is rounded on the rounding
+	final int earlier; // the bit of a pair is set if its first time-stamp is earlier than its second
+	final int later; // the bit of a pair is set if its first time-stamp is later than its second
+	final int equal; // the bit of a pair is set if its time-stamps are equal
+
+	/**
+	 * Works out the signature of eight time-stamps.
+	 * @param timestamps the raw values of the time-stamps
+	 */
+	TimestampSignature(long[] timestamps) {
+		int roundings = 0;
+		int earlier = 0;
+		int later = 0;
+		int equal = 0;
+		for (int ii = 0; ii < 8; ii++) {
+			for (int rounding = 0; rounding < ROUNDINGS.length; rounding++) {
+				if (Timestamp.isRoundedOn(timestamps[ii], ROUNDINGS[rounding])) {
+					roundings |= 1 << (ii * 4 + rounding);
+				}
+			}
+			for (int jj = ii + 1; jj < 8; jj++) {
+				int timeComparison = Timestamp.compare(timestamps[ii], timestamps[jj]);
+				if (timeComparison < 0) {
+					earlier |= PAIRS[ii][jj];
+				}
+				else if (timeComparison > 0) {
+					later |= PAIRS[ii][jj];
+				}
+				else {
+					equal |= PAIRS[ii][jj];
+				}
+			}
+		}
+		this.roundings = roundings;
+		this.earlier = earlier;
+		this.later = later;
+		this.equal = equal;
+	}
+
+	/**
+	 * @param rounding the rounding of a time-stamp change, in tenth microseconds
+	 * @return the rounding class of the rounding, its position in ROUNDINGS
+	 */
+	static int getRoundingClass(long rounding) {
+		for (int ii = 0; ii < ROUNDINGS.length; ii++) {
+			if (ROUNDINGS[ii] == rounding) {
+				return ii;
+			}
+		}
+		throw new IllegalArgumentException("A rounding of " + rounding + " tenth microseconds is not one of the roundings of time-stamp changes.");
+	}
+
+}
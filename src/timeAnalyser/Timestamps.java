@@ -4,78 +4,137 @@
 package timeAnalyser;
 
 /**
+ * The $SI and $FN time-stamps of file meta-data, held as eight raw time values in the order $SI.C, $SI.W, $SI.E, $SI.A, $FN.C, $FN.W, $FN.E, $FN.A.
+ * Timestamp objects are only made when they are asked for.
  * @author Jelle Bouma
  *
  */
 public class Timestamps {
-	Timestamp[] si;
-	Timestamp[] fn;
+	long[] values = new long[8];
+	boolean hasSI = false;
+	boolean hasFN = false;
+	private TimestampSignature signature; // the signature of the time values, null until it is asked for or after they have been changed
 
 	/**
-	 * @return the $SI time-stamps
+	 * @return the $SI time-stamps, or null if they have not been set
 	 */
 	public Timestamp[] getSI() {
-		return si;
+		return hasSI ? toTimestamps(0) : null;
 	}
 
 	/**
 	 * @param si the $SI time-stamps to set
 	 */
 	protected void setSI(Timestamp[] si) {
-		this.si = si;
+		hasSI = si != null;
+		signature = null;
+		for (int ii = 0; hasSI && ii < 4; ii++) {
+			values[ii] = si[ii].timeValue;
+		}
 	}
 
 	/**
-	 * @return the $FN time-stamps
+	 * @param timestamp which $SI time-stamp to set: 0 for C, 1 for W, 2 for E and 3 for A
+	 * @param timeValue the unsigned amount of tenth microseconds from 1601-01-01 0:0:0
+	 */
+	void setSI(int timestamp, long timeValue) {
+		values[timestamp] = timeValue;
+		hasSI = true;
+		signature = null;
+	}
+
+	/**
+	 * @return the $FN time-stamps, or null if they have not been set
 	 */
 	public Timestamp[] getFN() {
-		return fn;
+		return hasFN ? toTimestamps(4) : null;
 	}
 
 	/**
 	 * @param fn the $FN time-stamps to set
 	 */
 	protected void setFN(Timestamp[] fn) {
-		this.fn = fn;
+		hasFN = fn != null;
+		signature = null;
+		for (int ii = 0; hasFN && ii < 4; ii++) {
+			values[ii + 4] = fn[ii].timeValue;
+		}
+	}
+
+	/**
+	 * @param timestamp which $FN time-stamp to set: 0 for C, 1 for W, 2 for E and 3 for A
+	 * @param timeValue the unsigned amount of tenth microseconds from 1601-01-01 0:0:0
+	 */
+	void setFN(int timestamp, long timeValue) {
+		values[timestamp + 4] = timeValue;
+		hasFN = true;
+		signature = null;
 	}
 	
 	public Timestamp[] getAll() {
 		Timestamp[] all = new Timestamp[8];
-		System.arraycopy(si, 0, all, 0, 4);
-		System.arraycopy(fn, 0, all, 4, 4);
+		for (int ii = 0; ii < all.length; ii++) {
+			all[ii] = new Timestamp(values[ii]);
+		}
 		return all;
 	}
 	
+	/**
+	 * @return the raw time values of all eight time-stamps, which should not be modified
+	 */
+	long[] getValues() {
+		return values;
+	}
+	
+	/**
+	 * @return the relations between the time-stamps, which are worked out once until the time-stamps are changed
+	 */
+	TimestampSignature getSignature() {
+		if (signature == null) {
+			signature = new TimestampSignature(values);
+		}
+		return signature;
+	}
+	
+	/**
+	 * @param first the first of the four time-stamps
+	 * @return four time-stamps
+	 */
+	private Timestamp[] toTimestamps(int first) {
+		Timestamp[] timestamps = new Timestamp[4];
+		for (int ii = 0; ii < timestamps.length; ii++) {
+			timestamps[ii] = new Timestamp(values[first + ii]);
+		}
+		return timestamps;
+	}
+	
 	public String toString() {
 		String string = "\n$SI = ";
-		for(Timestamp timestamp : si) {
-			string += timestamp + " ";
+		for (int ii = 0; ii < 4; ii++) {
+			string += new Timestamp(values[ii]) + " ";
 		}
 		string += "\n$FN = ";
-		for(Timestamp timestamp : fn) {
-			string += timestamp + " ";
+		for (int ii = 4; ii < 8; ii++) {
+			string += new Timestamp(values[ii]) + " ";
 		}
 		return string;
 	}
 	
 	public boolean hasSIAndFN() {
-		return si != null && fn != null;
+		return hasSI && hasFN;
 	}
 	
 	public void copyTimestamp(int from, int to) {
-		Timestamp[] all = getAll();
-		if (to < 4) {
-			si[to] = all[from];
-		}
-		else {
-			fn[to % 4] = all[from];
-		}
+		values[to] = values[from];
+		signature = null;
 	}
 	
 	public Timestamps clone() {
 		Timestamps clone = new Timestamps();
-		clone.setSI(si.clone());
-		clone.setFN(fn.clone());
+		clone.values = values.clone();
+		clone.hasSI = hasSI;
+		clone.hasFN = hasFN;
+		clone.signature = signature;
 		return clone;
 	}
 	